@@ -0,0 +1,244 @@
+package org.bbottema.rtftohtml;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decompresses Outlook's {@code PR_RTF_COMPRESSED} format (MS-OXRTFCP) while it is being read, so compressed message
+ * bodies can be converted without first inflating them into a byte array.
+ * <p>
+ * Both the LZFu compressed and the MELA uncompressed variants are supported. The CRC of compressed content is checked
+ * once the compressed data has been read; a mismatch, like a truncated or malformed header, is reported as an
+ * {@link IOException}. At most the declared compressed size is read from the underlying stream, which is closed along
+ * with this one.
+ */
+public final class CompressedRtfInputStream extends InputStream {
+
+	private static final int COMPRESSED = 0x75465A4C; // "LZFu"
+	private static final int UNCOMPRESSED = 0x414C454D; // "MELA"
+
+	private static final byte[] INITIAL_DICTIONARY = ("{\\rtf1\\ansi\\mac\\deff0\\deftab720{\\fonttbl;}{\\f0\\fnil \\froman "
+			+ "\\fswiss \\fmodern \\fscript \\fdecor MS Sans SerifSymbolArialTimes New RomanCourier{\\colortbl\\red0\\green0"
+			+ "\\blue0\r\n\\par \\pard\\plain\\f0\\fs20\\b\\i\\u\\tab\\tx").getBytes(StandardCharsets.US_ASCII);
+
+	private static final int DICTIONARY_SIZE = 4096;
+	private static final int DICTIONARY_MASK = DICTIONARY_SIZE - 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int[] CRC_TABLE = crcTable();
+
+	private final InputStream compressed;
+	private final byte[] buffer = new byte[8192];
+	private int bufferPosition;
+	private int bufferLimit;
+	private boolean headerRead;
+	private boolean lzfu;
+	private long compressedRemaining;
+	private long rawRemaining;
+	private int expectedCrc;
+	private int crc;
+
+	private final byte[] dictionary = new byte[DICTIONARY_SIZE];
+	private int writePosition;
+	private int flags;
+	private int flagCount;
+	private int referenceOffset;
+	private int referenceRemaining;
+	private boolean finished;
+
+	public CompressedRtfInputStream(@NotNull InputStream compressed) {
+		this.compressed = requireNonNull(compressed, "compressed");
+		System.arraycopy(INITIAL_DICTIONARY, 0, dictionary, 0, INITIAL_DICTIONARY.length);
+		writePosition = INITIAL_DICTIONARY.length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(@NotNull byte[] target, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || length > target.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (!headerRead) {
+			readHeader();
+		}
+		if (length == 0) {
+			return 0;
+		}
+		int produced = lzfu ? inflate(target, offset, (int) Math.min(length, rawRemaining)) : copy(target, offset, length);
+		rawRemaining -= produced;
+		if (rawRemaining == 0) {
+			finish();
+		}
+		return produced == 0 && finished ? -1 : produced;
+	}
+
+	@Override
+	public int available() throws IOException {
+		int buffered = lzfu ? referenceRemaining : bufferLimit - bufferPosition;
+		return (int) Math.min(buffered, rawRemaining);
+	}
+
+	@Override
+	public void close() throws IOException {
+		compressed.close();
+	}
+
+	private void readHeader() throws IOException {
+		headerRead = true;
+		byte[] header = new byte[HEADER_SIZE];
+		for (int read = 0; read < HEADER_SIZE; ) {
+			int count = compressed.read(header, read, HEADER_SIZE - read);
+			if (count == -1) {
+				throw new EOFException("Compressed RTF header is truncated.");
+			}
+			read += count;
+		}
+		long compressedSize = littleEndian(header, 0) & 0xFFFFFFFFL;
+		rawRemaining = littleEndian(header, 4) & 0xFFFFFFFFL;
+		int type = littleEndian(header, 8);
+		expectedCrc = littleEndian(header, 12);
+		if (type != COMPRESSED && type != UNCOMPRESSED) {
+			throw new IOException(String.format("Unknown compressed RTF type: 0x%08X", type));
+		}
+		if (compressedSize < HEADER_SIZE - 4) {
+			throw new IOException("Invalid compressed RTF size: " + compressedSize);
+		}
+		lzfu = type == COMPRESSED;
+		compressedRemaining = compressedSize - (HEADER_SIZE - 4);
+		if (rawRemaining == 0) {
+			finish();
+		}
+	}
+
+	/**
+	 * Copies MELA content, which is stored as is and not covered by a CRC.
+	 */
+	private int copy(@NotNull byte[] target, int offset, int length) throws IOException {
+		if (finished) {
+			return 0;
+		}
+		if (bufferPosition == bufferLimit && !fill()) {
+			throw new EOFException("Compressed RTF content is truncated.");
+		}
+		int count = (int) Math.min(Math.min(length, bufferLimit - bufferPosition), rawRemaining);
+		System.arraycopy(buffer, bufferPosition, target, offset, count);
+		bufferPosition += count;
+		return count;
+	}
+
+	private int inflate(@NotNull byte[] target, int offset, int length) throws IOException {
+		int produced = 0;
+		while (produced < length && !finished) {
+			if (referenceRemaining > 0) {
+				int count = Math.min(referenceRemaining, length - produced);
+				for (int i = 0; i < count; i++) {
+					byte value = dictionary[referenceOffset];
+					referenceOffset = (referenceOffset + 1) & DICTIONARY_MASK;
+					dictionary[writePosition] = value;
+					writePosition = (writePosition + 1) & DICTIONARY_MASK;
+					target[offset + produced++] = value;
+				}
+				referenceRemaining -= count;
+				continue;
+			}
+			if (flagCount == 0) {
+				if (compressedRemaining == 0) {
+					throw new EOFException("Compressed RTF content ends without an end marker.");
+				}
+				flags = nextCompressedByte();
+				flagCount = 8;
+			}
+			boolean reference = (flags & 1) != 0;
+			flags >>>= 1;
+			flagCount--;
+			if (!reference) {
+				byte value = (byte) nextCompressedByte();
+				dictionary[writePosition] = value;
+				writePosition = (writePosition + 1) & DICTIONARY_MASK;
+				target[offset + produced++] = value;
+			} else {
+				int word = nextCompressedByte() << 8 | nextCompressedByte();
+				referenceOffset = word >>> 4;
+				if (referenceOffset == writePosition) {
+					finish();
+				} else {
+					referenceRemaining = (word & 0xF) + 2;
+				}
+			}
+		}
+		return produced;
+	}
+
+	private int nextCompressedByte() throws IOException {
+		if (compressedRemaining == 0 || (bufferPosition == bufferLimit && !fill())) {
+			throw new EOFException("Compressed RTF content is truncated.");
+		}
+		compressedRemaining--;
+		int value = buffer[bufferPosition++] & 0xFF;
+		crc = CRC_TABLE[(crc ^ value) & 0xFF] ^ (crc >>> 8);
+		return value;
+	}
+
+	/**
+	 * Reads the next chunk, never past the declared compressed size.
+	 */
+	private boolean fill() throws IOException {
+		long wanted = lzfu ? compressedRemaining : Math.min(compressedRemaining, rawRemaining);
+		int count = compressed.read(buffer, 0, (int) Math.min(buffer.length, wanted));
+		if (count <= 0) {
+			return false;
+		}
+		bufferPosition = 0;
+		bufferLimit = count;
+		return true;
+	}
+
+	/**
+	 * Reads whatever padding follows the end of the content so the CRC covers all compressed data, then checks it.
+	 */
+	private void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		referenceRemaining = 0;
+		if (lzfu) {
+			while (compressedRemaining > 0) {
+				nextCompressedByte();
+			}
+			if (crc != expectedCrc) {
+				throw new IOException(String.format("Compressed RTF CRC mismatch: expected 0x%08X, computed 0x%08X", expectedCrc, crc));
+			}
+		}
+	}
+
+	private static int littleEndian(@NotNull byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * The standard CRC-32 table; MS-OXRTFCP starts at zero and skips the final inversion.
+	 */
+	@NotNull
+	private static int[] crcTable() {
+		int[] table = new int[256];
+		for (int i = 0; i < table.length; i++) {
+			int value = i;
+			for (int bit = 0; bit < 8; bit++) {
+				value = (value & 1) != 0 ? 0xEDB88320 ^ (value >>> 1) : value >>> 1;
+			}
+			table[i] = value;
+		}
+		return table;
+	}
+}
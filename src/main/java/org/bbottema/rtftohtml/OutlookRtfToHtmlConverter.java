@@ -1,8 +1,15 @@
 package org.bbottema.rtftohtml;
 
+import org.bbottema.rtftohtml.internal.RtfInput;
 import org.bbottema.rtftohtml.internal.RtfToHtmlEngine;
+import org.bbottema.rtftohtml.internal.Utf8HtmlWriter;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -15,7 +22,8 @@ public final class OutlookRtfToHtmlConverter implements RtfToHtmlConverter {
 
 	public static final OutlookRtfToHtmlConverter INSTANCE = new OutlookRtfToHtmlConverter();
 
-	private final RtfParser parser = new RtfParser();
+	private static final int STREAM_CHUNK_SIZE = 8192;
+
 	private final RtfToHtmlOptions options;
 
 	public OutlookRtfToHtmlConverter() {
@@ -29,12 +37,55 @@ public final class OutlookRtfToHtmlConverter implements RtfToHtmlConverter {
 	@NotNull
 	@Override
 	public String toHtml(@NotNull String rtf) {
-		return new RtfToHtmlEngine(options).renderOutlook(parser.parse(requireNonNull(rtf, "rtf")));
+		return new RtfToHtmlEngine(options).renderOutlook(RtfInput.of(requireNonNull(rtf, "rtf")));
 	}
 
 	@NotNull
 	@Override
 	public String toHtml(@NotNull byte[] rtfBytes) {
-		return new RtfToHtmlEngine(options).renderOutlook(parser.parse(requireNonNull(rtfBytes, "rtfBytes")));
+		return new RtfToHtmlEngine(options).renderOutlook(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	@NotNull
+	@Override
+	public String toHtml(@NotNull Path rtfFile) {
+		return new RtfToHtmlEngine(options).renderOutlook(RtfInput.map(requireNonNull(rtfFile, "rtfFile")));
+	}
+
+	/**
+	 * Converts a document parsed with {@link RtfParser#parseTape(String)}.
+	 */
+	@NotNull
+	public String toHtml(@NotNull RtfTape tape) {
+		return new RtfToHtmlEngine(options).renderOutlook(requireNonNull(tape, "tape"));
+	}
+
+	@Override
+	public void toHtml(@NotNull InputStream rtfStream, @NotNull Appendable html) {
+		RtfInput input = RtfInput.of(requireNonNull(rtfStream, "rtfStream"), STREAM_CHUNK_SIZE);
+		new RtfToHtmlEngine(options).renderOutlook(input, requireNonNull(html, "html"));
+	}
+
+	@Override
+	public void toHtmlUtf8(@NotNull byte[] rtfBytes, @NotNull OutputStream html) {
+		Utf8HtmlWriter writer = new Utf8HtmlWriter(requireNonNull(html, "html"));
+		new RtfToHtmlEngine(options).renderOutlook(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")), writer);
+		writer.flush();
+	}
+
+	@Override
+	public void toHtmlUtf8(@NotNull String rtf, @NotNull OutputStream html) {
+		Utf8HtmlWriter writer = new Utf8HtmlWriter(requireNonNull(html, "html"));
+		new RtfToHtmlEngine(options).renderOutlook(RtfInput.of(requireNonNull(rtf, "rtf")), writer);
+		writer.flush();
+	}
+
+	@Override
+	public int toHtmlUtf8(@NotNull byte[] rtfBytes, @NotNull ByteBuffer html) {
+		int startPosition = requireNonNull(html, "html").position();
+		Utf8HtmlWriter writer = new Utf8HtmlWriter(html);
+		new RtfToHtmlEngine(options).renderOutlook(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")), writer);
+		writer.flush();
+		return html.position() - startPosition;
 	}
 }
@@ -0,0 +1,44 @@
+package org.bbottema.rtftohtml;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives RTF tokens in source order while {@link RtfParser} scans them, without building an
+ * {@link org.bbottema.rtftohtml.model.RtfDocument} tree.
+ * <p>
+ * Offsets are character offsets into the original source, as in {@link org.bbottema.rtftohtml.model.RtfPosition}.
+ * Closing braces without a matching open group are not reported, and groups still open at the end of the input are
+ * not closed; {@link #onDocumentEnd(int)} always follows the last token. All callbacks default to doing nothing.
+ */
+public interface RtfEventHandler {
+
+	default void onGroupStart(int startOffset) {
+	}
+
+	default void onGroupEnd(int endOffset) {
+	}
+
+	/**
+	 * @param name      the control word name; the same {@code String} instance is reported for every occurrence of a
+	 *                  word within one document.
+	 * @param code      the {@link org.bbottema.rtftohtml.model.RtfControlWords} code of the word.
+	 * @param parameter the numeric parameter, only meaningful when {@code hasParameter} is {@code true}.
+	 */
+	default void onControlWord(@NotNull String name, int code, boolean hasParameter, int parameter, int startOffset, int endOffset) {
+	}
+
+	default void onControlSymbol(char symbol, int startOffset, int endOffset) {
+	}
+
+	default void onText(@NotNull String text, int startOffset, int endOffset) {
+	}
+
+	default void onHexBytes(@NotNull byte[] bytes, int startOffset, int endOffset) {
+	}
+
+	default void onBinary(@NotNull byte[] bytes, int startOffset, int endOffset) {
+	}
+
+	default void onDocumentEnd(int endOffset) {
+	}
+}
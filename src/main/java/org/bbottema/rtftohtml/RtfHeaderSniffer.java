@@ -0,0 +1,68 @@
+package org.bbottema.rtftohtml;
+
+import org.bbottema.rtftohtml.internal.HeaderScanner;
+import org.bbottema.rtftohtml.internal.RtfInput;
+import org.bbottema.rtftohtml.model.RtfDocument;
+import org.bbottema.rtftohtml.model.RtfHeader;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads only the preamble of an RTF document: control words of the top-level group and its header destinations
+ * (font table, color table, and the like) up to the first body content. Scanning a typical e-mail body this way touches
+ * a few hundred bytes, whatever the size of the document.
+ */
+public final class RtfHeaderSniffer {
+
+	private static final int STREAM_CHUNK_SIZE = 4096;
+
+	private RtfHeaderSniffer() {
+	}
+
+	@NotNull
+	public static RtfHeader sniff(@NotNull String rtf) {
+		return HeaderScanner.scan(RtfInput.of(requireNonNull(rtf, "rtf")));
+	}
+
+	@NotNull
+	public static RtfHeader sniff(@NotNull byte[] rtfBytes) {
+		return HeaderScanner.scan(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	@NotNull
+	public static RtfHeader sniff(@NotNull ByteBuffer rtfBytes) {
+		return HeaderScanner.scan(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	@NotNull
+	public static RtfHeader sniff(@NotNull Path rtfFile) {
+		return HeaderScanner.scan(RtfInput.map(requireNonNull(rtfFile, "rtfFile")));
+	}
+
+	/**
+	 * Reads the stream in 4 KiB chunks only as far as the preamble goes; it is not closed.
+	 */
+	@NotNull
+	public static RtfHeader sniff(@NotNull InputStream rtfStream) {
+		return HeaderScanner.scan(RtfInput.of(requireNonNull(rtfStream, "rtfStream"), STREAM_CHUNK_SIZE));
+	}
+
+	/**
+	 * Returns the header a lightweight document captured while parsing; otherwise walks the document's nodes rather
+	 * than its source, so groups of a lazily parsed document past the preamble stay unloaded.
+	 */
+	@NotNull
+	public static RtfHeader sniff(@NotNull RtfDocument document) {
+		return HeaderScanner.scan(requireNonNull(document, "document"));
+	}
+
+	@NotNull
+	public static RtfHeader sniff(@NotNull RtfTape tape) {
+		return HeaderScanner.scan(requireNonNull(tape, "tape"));
+	}
+}
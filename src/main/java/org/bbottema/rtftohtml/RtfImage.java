@@ -3,7 +3,18 @@ package org.bbottema.rtftohtml;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
@@ -13,7 +24,9 @@ import static java.util.Objects.requireNonNull;
 public final class RtfImage {
 
 	private final String format;
-	private final byte[] bytes;
+	private Supplier<ByteBuffer> payload;
+	private ByteBuffer bytes;
+	private final Path payloadFile;
 	private final Integer widthPixels;
 	private final Integer heightPixels;
 	private final Integer widthGoalTwips;
@@ -22,8 +35,50 @@ public final class RtfImage {
 	public RtfImage(@Nullable String format, @NotNull byte[] bytes,
 					@Nullable Integer widthPixels, @Nullable Integer heightPixels,
 					@Nullable Integer widthGoalTwips, @Nullable Integer heightGoalTwips) {
+		this(format, ByteBuffer.wrap(requireNonNull(bytes, "bytes").clone()), widthPixels, heightPixels, widthGoalTwips, heightGoalTwips);
+	}
+
+	/**
+	 * Uses the remaining bytes of the buffer without copying them; they must not change afterwards.
+	 */
+	public RtfImage(@Nullable String format, @NotNull ByteBuffer bytes,
+					@Nullable Integer widthPixels, @Nullable Integer heightPixels,
+					@Nullable Integer widthGoalTwips, @Nullable Integer heightGoalTwips) {
+		this.format = format;
+		this.bytes = requireNonNull(bytes, "bytes").slice().asReadOnlyBuffer();
+		this.payloadFile = null;
+		this.widthPixels = widthPixels;
+		this.heightPixels = heightPixels;
+		this.widthGoalTwips = widthGoalTwips;
+		this.heightGoalTwips = heightGoalTwips;
+	}
+
+	/**
+	 * Defers producing the bytes until they are first asked for, so handlers that go by the format or dimensions
+	 * alone never pay for decoding the payload. The supplier is called at most once, and the remaining bytes of the
+	 * buffer it returns are used without copying.
+	 */
+	public RtfImage(@Nullable String format, @NotNull Supplier<ByteBuffer> payload,
+					@Nullable Integer widthPixels, @Nullable Integer heightPixels,
+					@Nullable Integer widthGoalTwips, @Nullable Integer heightGoalTwips) {
+		this.format = format;
+		this.payload = requireNonNull(payload, "payload");
+		this.payloadFile = null;
+		this.widthPixels = widthPixels;
+		this.heightPixels = heightPixels;
+		this.widthGoalTwips = widthGoalTwips;
+		this.heightGoalTwips = heightGoalTwips;
+	}
+
+	/**
+	 * Reads the bytes from the file whenever they are asked for, so they are not held in memory. The file is neither
+	 * copied nor deleted by the image and must stay in place for as long as the image is read.
+	 */
+	public RtfImage(@Nullable String format, @NotNull Path payloadFile,
+					@Nullable Integer widthPixels, @Nullable Integer heightPixels,
+					@Nullable Integer widthGoalTwips, @Nullable Integer heightGoalTwips) {
 		this.format = format;
-		this.bytes = Arrays.copyOf(requireNonNull(bytes, "bytes"), bytes.length);
+		this.payloadFile = requireNonNull(payloadFile, "payloadFile");
 		this.widthPixels = widthPixels;
 		this.heightPixels = heightPixels;
 		this.widthGoalTwips = widthGoalTwips;
@@ -37,7 +92,66 @@ public final class RtfImage {
 
 	@NotNull
 	public byte[] getBytes() {
-		return Arrays.copyOf(bytes, bytes.length);
+		if (payloadFile != null) {
+			return readPayloadFile();
+		}
+		ByteBuffer view = asByteBuffer();
+		byte[] copy = new byte[view.remaining()];
+		view.get(copy);
+		return copy;
+	}
+
+	/**
+	 * @return a read-only view of the image bytes, for handlers that only need to read or write them out once. An image
+	 * backed by a file is read into memory for this; {@link #openChannel()} avoids that.
+	 */
+	@NotNull
+	public ByteBuffer asByteBuffer() {
+		if (payloadFile != null) {
+			return ByteBuffer.wrap(readPayloadFile()).asReadOnlyBuffer();
+		}
+		return bytes().duplicate();
+	}
+
+	/**
+	 * @return a new channel over the image bytes, which reads an image backed by a file straight from that file.
+	 */
+	@NotNull
+	public ReadableByteChannel openChannel() {
+		if (payloadFile != null) {
+			try {
+				return FileChannel.open(payloadFile, StandardOpenOption.READ);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not read image payload from " + payloadFile + ".", e);
+			}
+		}
+		return new ByteBufferChannel(asByteBuffer());
+	}
+
+	/**
+	 * @return a new stream over the image bytes, see {@link #openChannel()}.
+	 */
+	@NotNull
+	public InputStream openStream() {
+		return Channels.newInputStream(openChannel());
+	}
+
+	@NotNull
+	private byte[] readPayloadFile() {
+		try {
+			return Files.readAllBytes(payloadFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read image payload from " + payloadFile + ".", e);
+		}
+	}
+
+	@NotNull
+	private synchronized ByteBuffer bytes() {
+		if (bytes == null) {
+			bytes = requireNonNull(payload.get(), "payload").slice().asReadOnlyBuffer();
+			payload = null;
+		}
+		return bytes;
 	}
 
 	@Nullable
@@ -59,4 +173,40 @@ public final class RtfImage {
 	public Integer getHeightGoalTwips() {
 		return heightGoalTwips;
 	}
+
+	private static final class ByteBufferChannel implements ReadableByteChannel {
+
+		private final ByteBuffer bytes;
+		private boolean open = true;
+
+		private ByteBufferChannel(@NotNull ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int read(@NotNull ByteBuffer target) throws IOException {
+			if (!open) {
+				throw new ClosedChannelException();
+			}
+			if (!bytes.hasRemaining()) {
+				return -1;
+			}
+			ByteBuffer chunk = bytes.duplicate();
+			chunk.limit(chunk.position() + Math.min(target.remaining(), chunk.remaining()));
+			target.put(chunk);
+			int count = chunk.position() - bytes.position();
+			bytes.position(chunk.position());
+			return count;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public void close() {
+			open = false;
+		}
+	}
 }
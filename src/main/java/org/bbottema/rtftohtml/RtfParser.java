@@ -1,37 +1,71 @@
 package org.bbottema.rtftohtml;
 
+import org.bbottema.rtftohtml.internal.HeaderScanner;
+import org.bbottema.rtftohtml.internal.RtfInput;
+import org.bbottema.rtftohtml.internal.RtfSegmenter;
+import org.bbottema.rtftohtml.internal.RtfTokenizer;
+import org.bbottema.rtftohtml.internal.RtfViewHandler;
 import org.bbottema.rtftohtml.model.RtfBinary;
 import org.bbottema.rtftohtml.model.RtfControlSymbol;
 import org.bbottema.rtftohtml.model.RtfControlWord;
 import org.bbottema.rtftohtml.model.RtfDocument;
 import org.bbottema.rtftohtml.model.RtfGroup;
 import org.bbottema.rtftohtml.model.RtfHexBytes;
+import org.bbottema.rtftohtml.model.RtfNode;
 import org.bbottema.rtftohtml.model.RtfPosition;
+import org.bbottema.rtftohtml.model.RtfSkippedGroup;
 import org.bbottema.rtftohtml.model.RtfText;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static java.util.Objects.requireNonNull;
-import static org.bbottema.rtftohtml.impl.util.ByteUtil.hexStringToByteArray;
+import static org.bbottema.rtftohtml.impl.util.ByteUtil.readAll;
 
 public final class RtfParser {
 
+	private final RtfParserOptions options;
+
 	public RtfParser() {
+		this(RtfParserOptions.defaults());
+	}
+
+	public RtfParser(@NotNull RtfParserOptions options) {
+		this.options = requireNonNull(options, "options");
 	}
 
 	@NotNull
 	public RtfDocument parse(@NotNull String rtf) {
-		return parse(requireNonNull(rtf, "rtf"), false);
+		return parse(RtfInput.of(requireNonNull(rtf, "rtf")));
 	}
 
 	@NotNull
 	public RtfDocument parse(@NotNull byte[] rtfBytes) {
-		return parse(new String(requireNonNull(rtfBytes, "rtfBytes"), StandardCharsets.ISO_8859_1), true);
+		return parse(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	/**
+	 * Parses the remaining bytes of the buffer in place; heap and direct buffers are scanned without copying.
+	 */
+	@NotNull
+	public RtfDocument parse(@NotNull ByteBuffer rtfBytes) {
+		return parse(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	/**
+	 * Parses a memory-mapped file. The document's source stays backed by the mapping, so large files never land on
+	 * the heap; only the nodes and decoded payloads do.
+	 */
+	@NotNull
+	public RtfDocument parse(@NotNull Path rtfFile) {
+		return parse(RtfInput.map(requireNonNull(rtfFile, "rtfFile")));
 	}
 
 	@NotNull
@@ -39,183 +73,297 @@ public final class RtfParser {
 		return parse(readAll(requireNonNull(inputStream, "inputStream")));
 	}
 
+	/**
+	 * Parses into a compact {@link RtfTape} instead of a tree of node objects. The tape keeps the source and decodes
+	 * text and payloads from it on demand.
+	 */
 	@NotNull
-	private RtfDocument parse(@NotNull String rtf, boolean bytePreservingInput) {
-		RtfGroup syntheticRoot = new RtfGroup(new RtfPosition(0, rtf.length()));
-		LinkedList<RtfGroup> stack = new LinkedList<>();
-		stack.addFirst(syntheticRoot);
-
-		int index = 0;
-		while (index < rtf.length()) {
-			char c = rtf.charAt(index);
-			if (c == '\0' || c == '\r' || c == '\n') {
-				index++;
-			} else if (c == '{') {
-				RtfGroup group = new RtfGroup(new RtfPosition(index, -1));
-				stack.getFirst().addChild(group);
-				stack.addFirst(group);
-				index++;
-			} else if (c == '}') {
-				if (stack.size() > 1) {
-					stack.removeFirst().closeAt(index + 1);
-				}
-				index++;
-			} else if (c == '\\') {
-				if (isHexEscape(rtf, index)) {
-					HexRun hexRun = readHexRun(rtf, index);
-					stack.getFirst().addChild(new RtfHexBytes(hexRun.bytes, new RtfPosition(index, hexRun.nextIndex)));
-					index = hexRun.nextIndex;
-				} else {
-					Control control = readControl(rtf, index);
-					if (control.word == null) {
-						stack.getFirst().addChild(new RtfControlSymbol(control.symbol, new RtfPosition(index, control.nextIndex)));
-						index = control.nextIndex;
-					} else if ("bin".equals(control.word) && control.parameter != null) {
-						int byteCount = Math.max(0, control.parameter);
-						int endIndex = Math.min(rtf.length(), control.nextIndex + byteCount);
-						byte[] bytes = new byte[endIndex - control.nextIndex];
-						for (int i = control.nextIndex; i < endIndex; i++) {
-							bytes[i - control.nextIndex] = (byte) rtf.charAt(i);
-						}
-						stack.getFirst().addChild(new RtfBinary(bytes, new RtfPosition(index, endIndex)));
-						index = endIndex;
-					} else {
-						stack.getFirst().addChild(new RtfControlWord(control.word, control.parameter, new RtfPosition(index, control.nextIndex)));
-						index = control.nextIndex;
-					}
-				}
-			} else {
-				int nextIndex = readTextEnd(rtf, index);
-				stack.getFirst().addChild(new RtfText(rtf.substring(index, nextIndex), new RtfPosition(index, nextIndex)));
-				index = nextIndex;
-			}
-		}
+	public RtfTape parseTape(@NotNull String rtf) {
+		return RtfTape.parse(RtfInput.of(requireNonNull(rtf, "rtf")));
+	}
 
-		return new RtfDocument(syntheticRoot, rtf, bytePreservingInput);
+	@NotNull
+	public RtfTape parseTape(@NotNull byte[] rtfBytes) {
+		return RtfTape.parse(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
 	}
 
-	private byte[] readAll(@NotNull InputStream inputStream) {
-		try {
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			byte[] buffer = new byte[8192];
-			int read;
-			while ((read = inputStream.read(buffer)) != -1) {
-				outputStream.write(buffer, 0, read);
+	@NotNull
+	public RtfTape parseTape(@NotNull ByteBuffer rtfBytes) {
+		return RtfTape.parse(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	@NotNull
+	public RtfTape parseTape(@NotNull Path rtfFile) {
+		return RtfTape.parse(RtfInput.map(requireNonNull(rtfFile, "rtfFile")));
+	}
+
+	@NotNull
+	public RtfTape parseTape(@NotNull InputStream inputStream) {
+		return parseTape(readAll(requireNonNull(inputStream, "inputStream")));
+	}
+
+	/**
+	 * Reports tokens to the handler as they are scanned, without building an {@link RtfDocument} tree.
+	 */
+	public void parse(@NotNull String rtf, @NotNull RtfEventHandler handler) {
+		new RtfTokenizer(RtfInput.of(requireNonNull(rtf, "rtf"))).emit(handler);
+	}
+
+	public void parse(@NotNull byte[] rtfBytes, @NotNull RtfEventHandler handler) {
+		new RtfTokenizer(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes"))).emit(handler);
+	}
+
+	public void parse(@NotNull ByteBuffer rtfBytes, @NotNull RtfEventHandler handler) {
+		new RtfTokenizer(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes"))).emit(handler);
+	}
+
+	public void parse(@NotNull Path rtfFile, @NotNull RtfEventHandler handler) {
+		new RtfTokenizer(RtfInput.map(requireNonNull(rtfFile, "rtfFile"))).emit(handler);
+	}
+
+	public void parse(@NotNull InputStream inputStream, @NotNull RtfEventHandler handler) {
+		parse(readAll(requireNonNull(inputStream, "inputStream")), handler);
+	}
+
+	@NotNull
+	private RtfDocument parse(@NotNull RtfInput input) {
+		if (options.isLazy()) {
+			LazyTree tree = new LazyTree(tokenizer(input, 0, Integer.MAX_VALUE), RtfSegmenter.findGroups(input));
+			RtfGroup syntheticRoot = new RtfGroup(new RtfPosition(0, input.source().length()),
+					root -> tree.load(root, 0, Integer.MAX_VALUE));
+			return new RtfDocument(syntheticRoot, input.source(), input.isBytePreserving());
+		}
+		ForkJoinPool pool = options.getParallelPool();
+		int length = input.source().length();
+		if (pool != null && length >= options.getParallelThreshold()) {
+			int[] splitPoints = RtfSegmenter.findSplitPoints(input, Math.max(1, length / (pool.getParallelism() * 4)));
+			if (splitPoints.length > 0) {
+				return parseSegments(input, splitPoints, pool);
 			}
-			return outputStream.toByteArray();
-		} catch (IOException e) {
-			throw new IllegalArgumentException("Could not read RTF input stream.", e);
 		}
+		TreeBuilder treeBuilder = new TreeBuilder(options.isLightweight());
+		tokenizer(input, 0, Integer.MAX_VALUE).emit(treeBuilder);
+		return document(input, treeBuilder.syntheticRoot);
 	}
 
-	private int readTextEnd(@NotNull String rtf, int index) {
-		int cursor = index;
-		while (cursor < rtf.length()) {
-			char c = rtf.charAt(cursor);
-			if (c == '\0' || c == '\r' || c == '\n' || c == '{' || c == '}' || c == '\\') {
-				break;
-			}
-			cursor++;
+	@NotNull
+	private RtfDocument document(@NotNull RtfInput input, @NotNull RtfGroup syntheticRoot) {
+		if (options.isLightweight()) {
+			return new RtfDocument(syntheticRoot, HeaderScanner.scan(syntheticRoot), input.isBytePreserving());
 		}
-		return cursor;
+		return new RtfDocument(syntheticRoot, input.source(), input.isBytePreserving());
 	}
 
-	private boolean isHexEscape(@NotNull String rtf, int index) {
-		return index + 3 < rtf.length()
-				&& rtf.charAt(index) == '\\'
-				&& rtf.charAt(index + 1) == '\''
-				&& isHexDigit(rtf.charAt(index + 2))
-				&& isHexDigit(rtf.charAt(index + 3));
+	@NotNull
+	private RtfTokenizer tokenizer(@NotNull RtfInput input, int startIndex, int endIndex) {
+		RtfTokenizer tokenizer = new RtfTokenizer(input, startIndex, endIndex);
+		tokenizer.skipDestinations(options.getSkippedDestinations());
+		return tokenizer;
 	}
 
-	private HexRun readHexRun(@NotNull String rtf, int index) {
-		StringBuilder hex = new StringBuilder();
-		int cursor = index;
-		while (isHexEscape(rtf, cursor)) {
-			hex.append(rtf.charAt(cursor + 2));
-			hex.append(rtf.charAt(cursor + 3));
-			cursor += 4;
+	/**
+	 * Parses the segments after the first split point on the pool while the first segment, which opens the top-level
+	 * group, is parsed on the calling thread. Each later segment starts inside the top-level group and builds into
+	 * placeholders that are then stitched into the real tree in document order.
+	 */
+	@NotNull
+	private RtfDocument parseSegments(@NotNull RtfInput input, @NotNull int[] splitPoints, @NotNull ForkJoinPool pool) {
+		List<ForkJoinTask<TreeBuilder>> segments = new ArrayList<>(splitPoints.length);
+		for (int i = 0; i < splitPoints.length; i++) {
+			int startIndex = splitPoints[i];
+			int endIndex = i + 1 < splitPoints.length ? splitPoints[i + 1] : Integer.MAX_VALUE;
+			segments.add(pool.submit(() -> {
+				TreeBuilder segment = new TreeBuilder(options.isLightweight(), startIndex);
+				tokenizer(input, startIndex, endIndex).emit(segment, 1);
+				return segment;
+			}));
 		}
-		return new HexRun(hexStringToByteArray(hex.toString()), cursor);
+
+		TreeBuilder treeBuilder = new TreeBuilder(options.isLightweight());
+		tokenizer(input, 0, splitPoints[0]).emit(treeBuilder);
+		RtfGroup topLevelGroup = treeBuilder.stack.getFirst();
+		for (ForkJoinTask<TreeBuilder> task : segments) {
+			TreeBuilder segment = task.join();
+			for (RtfNode child : segment.topLevelGroup.getChildren()) {
+				topLevelGroup.addChild(child);
+			}
+			int topLevelGroupEnd = segment.topLevelGroup.getPosition().getEndOffset();
+			if (topLevelGroupEnd != -1) {
+				topLevelGroup.closeAt(topLevelGroupEnd);
+			}
+			for (RtfNode child : segment.syntheticRoot.getChildren()) {
+				treeBuilder.syntheticRoot.addChild(child);
+			}
+			treeBuilder.syntheticRoot.closeAt(segment.syntheticRoot.getPosition().getEndOffset());
+		}
+		return document(input, treeBuilder.syntheticRoot);
 	}
 
-	private Control readControl(@NotNull String rtf, int slashIndex) {
-		int cursor = slashIndex + 1;
-		if (cursor >= rtf.length()) {
-			return Control.symbol('\\', slashIndex + 1);
+	/**
+	 * Materializes the groups of a lazily parsed document one at a time, from the offsets found by a brace-only scan.
+	 * Loading a group tokenizes only its direct content and jumps over nested groups, which get loaders of their own.
+	 */
+	private static final class LazyTree {
+		private final RtfTokenizer tokenizer;
+		private final int[] groups;
+
+		private LazyTree(@NotNull RtfTokenizer tokenizer, @NotNull int[] groups) {
+			this.tokenizer = tokenizer;
+			this.groups = groups;
+		}
+
+		private void load(@NotNull RtfGroup group, int startIndex, int endIndex) {
+			tokenizer.reposition(startIndex, endIndex);
+			RtfTokenType token;
+			while ((token = tokenizer.next()) != RtfTokenType.END_OF_INPUT) {
+				int startOffset = tokenizer.getStartIndex();
+				int endOffset = tokenizer.getEndIndex();
+				switch (token) {
+					case GROUP_START:
+						int child = indexOfGroupAt(startOffset);
+						int childEnd = groups[2 * child + 1];
+						String destination = tokenizer.skipDestination();
+						if (destination != null) {
+							group.addChild(new RtfSkippedGroup(destination, new RtfPosition(startOffset, childEnd)));
+						} else if (childEnd == -1) {
+							group.addChild(lazyGroup(startOffset, childEnd));
+							return;
+						} else {
+							group.addChild(lazyGroup(startOffset, childEnd));
+							tokenizer.reposition(childEnd, endIndex);
+						}
+						break;
+					case GROUP_END:
+						// only unbalanced braces outside any group get here, and those are dropped
+						break;
+					case CONTROL_WORD:
+						group.addChild(new RtfControlWord(tokenizer.getControlWord(), tokenizer.getControlWordCode(),
+								tokenizer.hasParameter() ? tokenizer.getParameter() : null, new RtfPosition(startOffset, endOffset)));
+						break;
+					case CONTROL_SYMBOL:
+						group.addChild(new RtfControlSymbol(tokenizer.getSymbol(), new RtfPosition(startOffset, endOffset)));
+						break;
+					case HEX_BYTES:
+						group.addChild(RtfHexBytes.view(ByteBuffer.wrap(tokenizer.getBytes()), new RtfPosition(startOffset, endOffset)));
+						break;
+					case BINARY:
+						group.addChild(RtfBinary.view(tokenizer.getBinaryView(), new RtfPosition(startOffset, endOffset)));
+						break;
+					default:
+						group.addChild(RtfText.view(tokenizer.getTextView(), new RtfPosition(startOffset, endOffset)));
+				}
+			}
+		}
+
+		@NotNull
+		private RtfGroup lazyGroup(int startOffset, int endOffset) {
+			int contentEnd = endOffset == -1 ? Integer.MAX_VALUE : endOffset - 1;
+			return new RtfGroup(new RtfPosition(startOffset, endOffset), group -> load(group, startOffset + 1, contentEnd));
 		}
 
-		char first = rtf.charAt(cursor);
-		if (!isAsciiLetter(first)) {
-			return Control.symbol(first, cursor + 1);
+		private int indexOfGroupAt(int startOffset) {
+			int low = 0;
+			int high = groups.length / 2 - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int middleStart = groups[2 * middle];
+				if (middleStart < startOffset) {
+					low = middle + 1;
+				} else if (middleStart > startOffset) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			throw new IllegalStateException("No group starts at offset " + startOffset);
 		}
+	}
 
-		int wordStart = cursor;
-		while (cursor < rtf.length() && isAsciiLetter(rtf.charAt(cursor))) {
-			cursor++;
+	/**
+	 * Builds nodes over views of the input, so text runs and binary payloads are not copied out of the source. A
+	 * lightweight builder copies them instead and leaves positions out, so the tree does not reference the source.
+	 */
+	private static final class TreeBuilder implements RtfViewHandler {
+		private final RtfGroup syntheticRoot = new RtfGroup(new RtfPosition(0, -1));
+		private final LinkedList<RtfGroup> stack = new LinkedList<>();
+		private final RtfGroup topLevelGroup;
+		private final boolean lightweight;
+
+		private TreeBuilder(boolean lightweight) {
+			stack.addFirst(syntheticRoot);
+			topLevelGroup = null;
+			this.lightweight = lightweight;
 		}
-		int wordEnd = cursor;
 
-		boolean hasParameter = false;
-		int sign = 1;
-		if (cursor < rtf.length() && rtf.charAt(cursor) == '-') {
-			sign = -1;
-			cursor++;
+		/**
+		 * Builds a segment that starts inside the top-level group, collecting its nodes in a placeholder for that group.
+		 */
+		private TreeBuilder(boolean lightweight, int startOffset) {
+			topLevelGroup = new RtfGroup(new RtfPosition(startOffset, -1));
+			stack.addFirst(syntheticRoot);
+			stack.addFirst(topLevelGroup);
+			this.lightweight = lightweight;
 		}
 
-		int value = 0;
-		while (cursor < rtf.length() && Character.isDigit(rtf.charAt(cursor))) {
-			hasParameter = true;
-			value = value * 10 + (rtf.charAt(cursor) - '0');
-			cursor++;
+		@NotNull
+		private RtfPosition position(int startOffset, int endOffset) {
+			return lightweight ? RtfPosition.UNKNOWN : new RtfPosition(startOffset, endOffset);
 		}
 
-		if (cursor < rtf.length() && rtf.charAt(cursor) == ' ') {
-			cursor++;
+		@Override
+		public void onGroupStart(int startOffset) {
+			RtfGroup group = new RtfGroup(new RtfPosition(startOffset, -1));
+			stack.getFirst().addChild(group);
+			stack.addFirst(group);
 		}
 
-		return Control.word(rtf.substring(wordStart, wordEnd), hasParameter ? sign * value : null, cursor);
-	}
+		@Override
+		public void onGroupEnd(int endOffset) {
+			stack.removeFirst().closeAt(endOffset);
+		}
 
-	private boolean isAsciiLetter(char c) {
-		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
-	}
+		@Override
+		public void onControlWord(@NotNull String name, int code, boolean hasParameter, int parameter, int startOffset, int endOffset) {
+			stack.getFirst().addChild(new RtfControlWord(name, code, hasParameter ? parameter : null, position(startOffset, endOffset)));
+		}
 
-	private boolean isHexDigit(char c) {
-		return c >= '0' && c <= '9'
-				|| c >= 'a' && c <= 'f'
-				|| c >= 'A' && c <= 'F';
-	}
+		@Override
+		public void onControlSymbol(char symbol, int startOffset, int endOffset) {
+			stack.getFirst().addChild(new RtfControlSymbol(symbol, position(startOffset, endOffset)));
+		}
 
-	private static final class Control {
-		private final String word;
-		private final Character symbol;
-		private final Integer parameter;
-		private final int nextIndex;
+		@Override
+		public void onTextView(@NotNull CharSequence text, int startOffset, int endOffset) {
+			RtfPosition position = position(startOffset, endOffset);
+			stack.getFirst().addChild(lightweight ? new RtfText(text.toString(), position) : RtfText.view(text, position));
+		}
 
-		private Control(String word, Character symbol, Integer parameter, int nextIndex) {
-			this.word = word;
-			this.symbol = symbol;
-			this.parameter = parameter;
-			this.nextIndex = nextIndex;
+		@Override
+		public void onHexBytesView(@NotNull ByteBuffer bytes, int startOffset, int endOffset) {
+			stack.getFirst().addChild(RtfHexBytes.view(ByteBuffer.wrap(copy(bytes)), position(startOffset, endOffset)));
 		}
 
-		private static Control word(@NotNull String word, Integer parameter, int nextIndex) {
-			return new Control(word, null, parameter, nextIndex);
+		@Override
+		public void onBinaryView(@NotNull ByteBuffer bytes, int startOffset, int endOffset) {
+			RtfPosition position = position(startOffset, endOffset);
+			stack.getFirst().addChild(lightweight ? RtfBinary.view(ByteBuffer.wrap(copy(bytes)), position) : RtfBinary.view(bytes, position));
 		}
 
-		private static Control symbol(char symbol, int nextIndex) {
-			return new Control(null, symbol, null, nextIndex);
+		@Override
+		public void onSkippedGroup(@NotNull String destination, int startOffset, int endOffset) {
+			stack.getFirst().addChild(new RtfSkippedGroup(destination, position(startOffset, endOffset)));
 		}
-	}
 
-	private static final class HexRun {
-		private final byte[] bytes;
-		private final int nextIndex;
+		@Override
+		public void onDocumentEnd(int endOffset) {
+			syntheticRoot.closeAt(endOffset);
+		}
 
-		private HexRun(byte[] bytes, int nextIndex) {
-			this.bytes = bytes;
-			this.nextIndex = nextIndex;
+		@NotNull
+		private static byte[] copy(@NotNull ByteBuffer bytes) {
+			byte[] copy = new byte[bytes.remaining()];
+			bytes.get(copy);
+			return copy;
 		}
 	}
 }
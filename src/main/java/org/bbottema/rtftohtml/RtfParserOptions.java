@@ -0,0 +1,168 @@
+package org.bbottema.rtftohtml;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options for {@link RtfParser}.
+ */
+public final class RtfParserOptions {
+
+	/**
+	 * Destinations that both converters discard without rendering, so skipping them while parsing changes no output.
+	 */
+	public static final Set<String> DISCARDED_DESTINATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"stylesheet", "info", "generator", "formatConverter", "listtable", "listoverridetable", "revtbl", "xmlnstbl",
+			"themedata", "colorschememapping", "datastore")));
+
+	private static final RtfParserOptions DEFAULTS = builder().build();
+
+	private final ForkJoinPool parallelPool;
+	private final int parallelThreshold;
+	private final Set<String> skippedDestinations;
+	private final boolean lazy;
+	private final boolean lightweight;
+
+	private RtfParserOptions(@NotNull Builder builder) {
+		this.parallelPool = builder.parallelPool;
+		this.parallelThreshold = builder.parallelThreshold;
+		this.skippedDestinations = builder.skippedDestinations;
+		this.lazy = builder.lazy;
+		this.lightweight = builder.lightweight;
+	}
+
+	@NotNull
+	public static RtfParserOptions defaults() {
+		return DEFAULTS;
+	}
+
+	@NotNull
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the pool that parses segments of large documents, or {@code null} when parsing is sequential.
+	 */
+	@Nullable
+	public ForkJoinPool getParallelPool() {
+		return parallelPool;
+	}
+
+	/**
+	 * @return the input length in characters from which documents are parsed in parallel.
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * @return the destinations whose groups the parser fast-forwards over, leaving an
+	 * {@link org.bbottema.rtftohtml.model.RtfSkippedGroup} in their place; empty by default.
+	 */
+	@NotNull
+	public Set<String> getSkippedDestinations() {
+		return skippedDestinations;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	public boolean isLightweight() {
+		return lightweight;
+	}
+
+	public static final class Builder {
+
+		private ForkJoinPool parallelPool;
+		private int parallelThreshold = 4 * 1024 * 1024;
+		private Set<String> skippedDestinations = Collections.emptySet();
+		private boolean lazy;
+		private boolean lightweight;
+
+		private Builder() {
+		}
+
+		/**
+		 * Parses large documents in parallel on the common pool. See {@link #parallel(ForkJoinPool)}.
+		 */
+		@NotNull
+		public Builder parallel() {
+			return parallel(ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * Splits documents of at least {@link #parallelThreshold(int) the threshold} at the group boundaries directly
+		 * inside the top-level group and parses the segments on the given pool. The resulting {@code RtfDocument} is
+		 * identical to a sequential parse. Only applies when building a document tree from in-memory or mapped input.
+		 */
+		@NotNull
+		public Builder parallel(@NotNull ForkJoinPool pool) {
+			this.parallelPool = requireNonNull(pool, "pool");
+			return this;
+		}
+
+		@NotNull
+		public Builder parallelThreshold(int parallelThreshold) {
+			if (parallelThreshold < 0) {
+				throw new IllegalArgumentException("parallelThreshold must not be negative: " + parallelThreshold);
+			}
+			this.parallelThreshold = parallelThreshold;
+			return this;
+		}
+
+		/**
+		 * Skips groups whose destination, the first control word after the brace and an optional {@code \*}, is one
+		 * of the given names, e.g. {@link #DISCARDED_DESTINATIONS}. Their content is never tokenized: the parser counts
+		 * braces up to the end of the group, stepping over escapes and {@code \binN} payloads, and records a single
+		 * {@link org.bbottema.rtftohtml.model.RtfSkippedGroup}. Event, tape, and stream parsing are not affected.
+		 */
+		@NotNull
+		public Builder skipDestinations(@NotNull Set<String> destinations) {
+			this.skippedDestinations = Collections.unmodifiableSet(new HashSet<>(requireNonNull(destinations, "destinations")));
+			return this;
+		}
+
+		/**
+		 * Makes {@code parse} return after a brace-only scan that records where each group starts and ends. A group's
+		 * children are tokenized the first time {@link org.bbottema.rtftohtml.model.RtfGroup#getChildren()} is called,
+		 * so callers pay only for the groups they look at. Lazily parsed documents are not safe for concurrent use
+		 * until fully loaded, and are never parsed in parallel.
+		 */
+		@NotNull
+		public Builder lazy(boolean lazy) {
+			this.lazy = lazy;
+			return this;
+		}
+
+		/**
+		 * Makes {@code parse} return a document that does not hold on to the source: text runs and payloads are copied
+		 * into their nodes, which all share {@link org.bbottema.rtftohtml.model.RtfPosition#UNKNOWN} (groups keep their
+		 * offsets, which tell whether they were closed), and the {@link org.bbottema.rtftohtml.model.RtfHeader} is
+		 * captured up front for mode detection. Suits documents that are cached or handed between pipeline stages.
+		 * Cannot be combined with {@link #lazy(boolean)}, which loads groups from the source.
+		 */
+		@NotNull
+		public Builder lightweight(boolean lightweight) {
+			this.lightweight = lightweight;
+			return this;
+		}
+
+		@NotNull
+		public RtfParserOptions build() {
+			if (lazy && lightweight) {
+				throw new IllegalArgumentException("Lazy parsing needs the source, so it cannot be lightweight.");
+			}
+			return new RtfParserOptions(this);
+		}
+	}
+}
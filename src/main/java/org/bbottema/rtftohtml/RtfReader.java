@@ -0,0 +1,162 @@
+package org.bbottema.rtftohtml;
+
+import org.bbottema.rtftohtml.internal.RtfInput;
+import org.bbottema.rtftohtml.internal.RtfTokenizer;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pull-based cursor over RTF tokens, for callers that want to inspect a document without parsing all of it.
+ * <p>
+ * Nothing is allocated while moving through the input; text and byte payloads are only decoded when their getters
+ * are called. Closing braces without a matching open group are skipped, like in {@link RtfParser}.
+ */
+public final class RtfReader {
+
+	private final RtfTokenizer tokenizer;
+	private RtfTokenType tokenType;
+	private int depth;
+
+	public RtfReader(@NotNull String rtf) {
+		this(RtfInput.of(requireNonNull(rtf, "rtf")));
+	}
+
+	public RtfReader(@NotNull byte[] rtfBytes) {
+		this(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	/**
+	 * Reads the remaining bytes of the buffer in place. Offsets are relative to the buffer's position.
+	 */
+	public RtfReader(@NotNull ByteBuffer rtfBytes) {
+		this(RtfInput.of(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	private RtfReader(@NotNull RtfInput input) {
+		this.tokenizer = new RtfTokenizer(input);
+	}
+
+	/**
+	 * Advances to the next token. Once {@link RtfTokenType#END_OF_INPUT} is returned, every further call returns it
+	 * again.
+	 */
+	@NotNull
+	public RtfTokenType next() {
+		if (tokenType == RtfTokenType.GROUP_START) {
+			depth++;
+		}
+		tokenType = tokenizer.next();
+		while (tokenType == RtfTokenType.GROUP_END && depth == 0) {
+			tokenType = tokenizer.next();
+		}
+		if (tokenType == RtfTokenType.GROUP_END) {
+			depth--;
+		}
+		return tokenType;
+	}
+
+	/**
+	 * Skips a whole group without decoding any of it. Positioned on {@link RtfTokenType#GROUP_START}, this skips
+	 * that group; anywhere else it skips the rest of the enclosing group. Either way the reader ends up on the
+	 * group's {@link RtfTokenType#GROUP_END}, or on {@link RtfTokenType#END_OF_INPUT} if the group is never closed.
+	 */
+	@NotNull
+	public RtfTokenType skipGroup() {
+		int targetDepth = tokenType == RtfTokenType.GROUP_START ? depth : depth - 1;
+		while (next() != RtfTokenType.END_OF_INPUT) {
+			if (tokenType == RtfTokenType.GROUP_END && depth == targetDepth) {
+				break;
+			}
+		}
+		return tokenType;
+	}
+
+	/**
+	 * @return the current token, or {@code null} before the first call to {@link #next()}.
+	 */
+	public RtfTokenType getTokenType() {
+		return tokenType;
+	}
+
+	/**
+	 * @return the number of groups enclosing the current token; a group's start and end tokens are at the depth of
+	 * the group's parent.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	@NotNull
+	public String getControlWordName() {
+		requireToken(RtfTokenType.CONTROL_WORD);
+		return tokenizer.getControlWord();
+	}
+
+	/**
+	 * @return the {@link org.bbottema.rtftohtml.model.RtfControlWords} code of the current control word, resolved
+	 * without allocating for known words.
+	 */
+	public int getControlWordCode() {
+		requireToken(RtfTokenType.CONTROL_WORD);
+		return tokenizer.getControlWordCode();
+	}
+
+	/**
+	 * Compares the current control word without allocating its name; {@code false} for any other token.
+	 */
+	public boolean isControlWord(@NotNull String name) {
+		return tokenizer.isControlWord(requireNonNull(name, "name"));
+	}
+
+	public boolean hasParameter() {
+		requireToken(RtfTokenType.CONTROL_WORD);
+		return tokenizer.hasParameter();
+	}
+
+	/**
+	 * @return the control word's numeric parameter, or {@code 0} when it has none; see {@link #hasParameter()}.
+	 */
+	public int getParameter() {
+		requireToken(RtfTokenType.CONTROL_WORD);
+		return tokenizer.getParameter();
+	}
+
+	public char getSymbol() {
+		requireToken(RtfTokenType.CONTROL_SYMBOL);
+		return tokenizer.getSymbol();
+	}
+
+	@NotNull
+	public String getText() {
+		requireToken(RtfTokenType.TEXT);
+		return tokenizer.getText();
+	}
+
+	/**
+	 * @return the decoded payload of a {@link RtfTokenType#HEX_BYTES} or {@link RtfTokenType#BINARY} token.
+	 */
+	@NotNull
+	public byte[] getBytes() {
+		if (tokenType != RtfTokenType.HEX_BYTES && tokenType != RtfTokenType.BINARY) {
+			throw new IllegalStateException("Current token has no byte payload: " + tokenType);
+		}
+		return tokenizer.getBytes();
+	}
+
+	public int getStartOffset() {
+		return tokenizer.getStartIndex();
+	}
+
+	public int getEndOffset() {
+		return tokenizer.getEndIndex();
+	}
+
+	private void requireToken(@NotNull RtfTokenType expected) {
+		if (tokenType != expected) {
+			throw new IllegalStateException("Expected " + expected + " but current token is " + tokenType);
+		}
+	}
+}
@@ -0,0 +1,364 @@
+package org.bbottema.rtftohtml;
+
+import org.bbottema.rtftohtml.internal.RtfInput;
+import org.bbottema.rtftohtml.internal.RtfTokenizer;
+import org.bbottema.rtftohtml.model.RtfControlWords;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact alternative to {@link org.bbottema.rtftohtml.model.RtfDocument}: the parsed tree stored as parallel primitive
+ * arrays instead of one object per node.
+ * <p>
+ * Nodes are addressed by index and laid out in document order. Index {@code 0} is the synthetic root group that holds
+ * the top-level tokens, like {@link org.bbottema.rtftohtml.model.RtfDocument#getRoot()}; groups report
+ * {@link RtfTokenType#GROUP_START} as their kind. Text and byte payloads are not stored but decoded from the source
+ * when asked for, so a tape costs a few dozen bytes per token on top of the source it was parsed from.
+ */
+public final class RtfTape {
+
+	public static final int NONE = -1;
+
+	private static final int HAS_PARAMETER = 0x80;
+	private static final int KIND_MASK = 0x7f;
+	private static final RtfTokenType[] KINDS = RtfTokenType.values();
+
+	private final CharSequence source;
+	private final boolean bytePreservingInput;
+	private final int size;
+	private final byte[] kinds;
+	private final int[] offsets;
+	private final int[] lengths;
+	/** Control word parameter, control symbol character, or binary payload offset relative to the token. */
+	private final int[] parameters;
+	/** Control word code, or {@code -2 - i} for the {@code i}th entry of {@link #unknownWords}. */
+	private final int[] words;
+	private final int[] parents;
+	private final int[] nextSiblings;
+	private final String[] unknownWords;
+
+	private RtfTape(@NotNull Builder builder) {
+		this.source = builder.source;
+		this.bytePreservingInput = builder.bytePreservingInput;
+		this.size = builder.size;
+		this.kinds = Arrays.copyOf(builder.kinds, size);
+		this.offsets = Arrays.copyOf(builder.offsets, size);
+		this.lengths = Arrays.copyOf(builder.lengths, size);
+		this.parameters = Arrays.copyOf(builder.parameters, size);
+		this.words = Arrays.copyOf(builder.words, size);
+		this.parents = Arrays.copyOf(builder.parents, size);
+		this.nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+		this.unknownWords = new String[builder.unknownWords.size()];
+		for (Map.Entry<String, Integer> unknownWord : builder.unknownWords.entrySet()) {
+			unknownWords[unknownWord.getValue()] = unknownWord.getKey();
+		}
+	}
+
+	/**
+	 * Parses the whole input into a tape. The input must be held in memory, since payloads are decoded from it later.
+	 */
+	@NotNull
+	static RtfTape parse(@NotNull RtfInput input) {
+		Builder builder = new Builder(input.source(), input.isBytePreserving());
+		RtfTokenizer tokenizer = new RtfTokenizer(input);
+		RtfTokenType token;
+		while ((token = tokenizer.next()) != RtfTokenType.END_OF_INPUT) {
+			builder.add(token, tokenizer);
+		}
+		builder.closeRoot(tokenizer.getStartIndex());
+		return new RtfTape(builder);
+	}
+
+	/**
+	 * @return the number of nodes, including the synthetic root.
+	 */
+	public int size() {
+		return size;
+	}
+
+	@NotNull
+	public String getSource() {
+		return source.toString();
+	}
+
+	public boolean isBytePreservingInput() {
+		return bytePreservingInput;
+	}
+
+	@NotNull
+	public RtfTokenType getKind(int node) {
+		return KINDS[kinds[node] & KIND_MASK];
+	}
+
+	public int getStartOffset(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * @return the end offset, or {@code -1} for a group that is never closed.
+	 */
+	public int getEndOffset(int node) {
+		return lengths[node] < 0 ? -1 : offsets[node] + lengths[node];
+	}
+
+	/**
+	 * @return the enclosing group, or {@link #NONE} for the root.
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * @return the first child of a group, or {@link #NONE} if it has none or the node is not a group.
+	 */
+	public int getFirstChild(int node) {
+		return node + 1 < size && parents[node + 1] == node ? node + 1 : NONE;
+	}
+
+	/**
+	 * @return the next node in the same group, or {@link #NONE}.
+	 */
+	public int getNextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	@NotNull
+	public String getControlWordName(int node) {
+		requireKind(node, RtfTokenType.CONTROL_WORD);
+		int word = words[node];
+		return word >= 0 ? requireNonNull(RtfControlWords.nameOf(word)) : unknownWords[-word - 2];
+	}
+
+	/**
+	 * @return the {@link RtfControlWords} code of a control word, or {@link RtfControlWords#UNKNOWN} for any other
+	 * node, so it can be compared without checking the kind first.
+	 */
+	public int getControlWordCode(int node) {
+		return getKind(node) == RtfTokenType.CONTROL_WORD ? Math.max(words[node], RtfControlWords.UNKNOWN) : RtfControlWords.UNKNOWN;
+	}
+
+	public boolean hasParameter(int node) {
+		requireKind(node, RtfTokenType.CONTROL_WORD);
+		return (kinds[node] & HAS_PARAMETER) != 0;
+	}
+
+	/**
+	 * @return the control word's numeric parameter, or {@code 0} when it has none; see {@link #hasParameter(int)}.
+	 */
+	public int getParameter(int node) {
+		requireKind(node, RtfTokenType.CONTROL_WORD);
+		return parameters[node];
+	}
+
+	public char getSymbol(int node) {
+		requireKind(node, RtfTokenType.CONTROL_SYMBOL);
+		return (char) parameters[node];
+	}
+
+	@NotNull
+	public String getText(int node) {
+		requireKind(node, RtfTokenType.TEXT);
+		return source.subSequence(offsets[node], offsets[node] + lengths[node]).toString();
+	}
+
+	/**
+	 * @return the decoded payload of a {@link RtfTokenType#HEX_BYTES} or {@link RtfTokenType#BINARY} node.
+	 */
+	@NotNull
+	public byte[] getBytes(int node) {
+		RtfTokenType kind = getKind(node);
+		int end = offsets[node] + lengths[node];
+		if (kind == RtfTokenType.BINARY) {
+			return sourceBytes(offsets[node] + parameters[node], end);
+		}
+		if (kind != RtfTokenType.HEX_BYTES) {
+			throw new IllegalStateException("Node has no byte payload: " + kind);
+		}
+		byte[] bytes = new byte[lengths[node] / 4];
+		for (int i = 0; i < bytes.length; i++) {
+			int cursor = offsets[node] + i * 4;
+			bytes[i] = (byte) (Character.digit(source.charAt(cursor + 2), 16) << 4 | Character.digit(source.charAt(cursor + 3), 16));
+		}
+		return bytes;
+	}
+
+	/**
+	 * Reports the nodes to the handler in document order, exactly like {@link RtfParser#parse(String, RtfEventHandler)}
+	 * would for the source. The walk is a single pass over the arrays.
+	 */
+	public void replay(@NotNull RtfEventHandler handler) {
+		requireNonNull(handler, "handler");
+		int openGroup = 0;
+		for (int node = 1; node < size; node++) {
+			openGroup = closeGroupsUntil(parents[node], openGroup, handler);
+			int start = offsets[node];
+			int end = start + lengths[node];
+			switch (getKind(node)) {
+				case GROUP_START:
+					handler.onGroupStart(start);
+					openGroup = node;
+					break;
+				case CONTROL_WORD:
+					handler.onControlWord(getControlWordName(node), getControlWordCode(node), hasParameter(node), parameters[node], start, end);
+					break;
+				case CONTROL_SYMBOL:
+					handler.onControlSymbol((char) parameters[node], start, end);
+					break;
+				case HEX_BYTES:
+					handler.onHexBytes(getBytes(node), start, end);
+					break;
+				case BINARY:
+					handler.onBinary(getBytes(node), start, end);
+					break;
+				default:
+					handler.onText(getText(node), start, end);
+			}
+		}
+		closeGroupsUntil(0, openGroup, handler);
+		handler.onDocumentEnd(getEndOffset(0));
+	}
+
+	private int closeGroupsUntil(int group, int openGroup, @NotNull RtfEventHandler handler) {
+		while (openGroup != group) {
+			if (lengths[openGroup] >= 0) {
+				handler.onGroupEnd(getEndOffset(openGroup));
+			}
+			openGroup = parents[openGroup];
+		}
+		return openGroup;
+	}
+
+	@NotNull
+	private byte[] sourceBytes(int startOffset, int endOffset) {
+		byte[] bytes = new byte[endOffset - startOffset];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) source.charAt(startOffset + i);
+		}
+		return bytes;
+	}
+
+	private void requireKind(int node, @NotNull RtfTokenType expected) {
+		RtfTokenType kind = getKind(node);
+		if (kind != expected) {
+			throw new IllegalStateException("Expected " + expected + " but node " + node + " is " + kind);
+		}
+	}
+
+	private static final class Builder {
+
+		private final CharSequence source;
+		private final boolean bytePreservingInput;
+		private final Map<String, Integer> unknownWords = new HashMap<>();
+		private int size;
+		private byte[] kinds;
+		private int[] offsets;
+		private int[] lengths;
+		private int[] parameters;
+		private int[] words;
+		private int[] parents;
+		private int[] nextSiblings;
+		/** Open groups, innermost last, and the last child added to each of them. */
+		private int[] openGroups = new int[16];
+		private int[] lastChildren = new int[16];
+		private int depth;
+
+		private Builder(@NotNull CharSequence source, boolean bytePreservingInput) {
+			this.source = source;
+			this.bytePreservingInput = bytePreservingInput;
+			int capacity = Math.max(16, Math.min(source.length() / 8, 4096));
+			kinds = new byte[capacity];
+			offsets = new int[capacity];
+			lengths = new int[capacity];
+			parameters = new int[capacity];
+			words = new int[capacity];
+			parents = new int[capacity];
+			nextSiblings = new int[capacity];
+			parents[0] = NONE;
+			nextSiblings[0] = NONE;
+			lastChildren[0] = NONE;
+			size = 1;
+		}
+
+		private void add(@NotNull RtfTokenType token, @NotNull RtfTokenizer tokenizer) {
+			if (token == RtfTokenType.GROUP_END) {
+				if (depth > 0) {
+					int group = openGroups[depth--];
+					lengths[group] = tokenizer.getEndIndex() - offsets[group];
+				}
+				return;
+			}
+
+			int node = append(token, tokenizer.getStartIndex(), tokenizer.getEndIndex());
+			if (token == RtfTokenType.GROUP_START) {
+				lengths[node] = -1;
+				open(node);
+			} else if (token == RtfTokenType.CONTROL_WORD) {
+				parameters[node] = tokenizer.getParameter();
+				words[node] = wordOf(tokenizer);
+				if (tokenizer.hasParameter()) {
+					kinds[node] |= HAS_PARAMETER;
+				}
+			} else if (token == RtfTokenType.CONTROL_SYMBOL) {
+				parameters[node] = tokenizer.getSymbol();
+			} else if (token == RtfTokenType.BINARY) {
+				parameters[node] = tokenizer.getPayloadStartIndex() - tokenizer.getStartIndex();
+			}
+		}
+
+		private void closeRoot(int endOffset) {
+			lengths[0] = endOffset;
+		}
+
+		private int append(@NotNull RtfTokenType token, int startOffset, int endOffset) {
+			if (size == kinds.length) {
+				int capacity = size + (size >> 1);
+				kinds = Arrays.copyOf(kinds, capacity);
+				offsets = Arrays.copyOf(offsets, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+				parameters = Arrays.copyOf(parameters, capacity);
+				words = Arrays.copyOf(words, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+			}
+			int node = size++;
+			kinds[node] = (byte) token.ordinal();
+			offsets[node] = startOffset;
+			lengths[node] = endOffset - startOffset;
+			parents[node] = openGroups[depth];
+			nextSiblings[node] = NONE;
+			if (lastChildren[depth] != NONE) {
+				nextSiblings[lastChildren[depth]] = node;
+			}
+			lastChildren[depth] = node;
+			return node;
+		}
+
+		private void open(int group) {
+			if (++depth == openGroups.length) {
+				openGroups = Arrays.copyOf(openGroups, depth * 2);
+				lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+			}
+			openGroups[depth] = group;
+			lastChildren[depth] = NONE;
+		}
+
+		private int wordOf(@NotNull RtfTokenizer tokenizer) {
+			int code = tokenizer.getControlWordCode();
+			if (code != RtfControlWords.UNKNOWN) {
+				return code;
+			}
+			String name = tokenizer.getControlWord();
+			Integer index = unknownWords.get(name);
+			if (index == null) {
+				index = unknownWords.size();
+				unknownWords.put(name, index);
+			}
+			return -2 - index;
+		}
+	}
+}
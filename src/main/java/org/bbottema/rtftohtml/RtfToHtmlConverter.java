@@ -1,7 +1,22 @@
 package org.bbottema.rtftohtml;
 
+import org.bbottema.rtftohtml.internal.Utf8HtmlWriter;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
+import static org.bbottema.rtftohtml.impl.util.ByteUtil.readAll;
+
 public interface RtfToHtmlConverter {
 
 	@NotNull
@@ -9,4 +24,109 @@ public interface RtfToHtmlConverter {
 
 	@NotNull
 	String toHtml(@NotNull byte[] rtfBytes);
+
+	/**
+	 * Converts RTF read from the stream and appends the HTML to {@code html}, for example a {@link java.io.Writer}.
+	 * The stream is not closed.
+	 * <p>
+	 * The default implementation reads the whole stream first; the standard and Outlook converters override it to
+	 * read fixed-size chunks and write HTML while converting.
+	 */
+	default void toHtml(@NotNull InputStream rtfStream, @NotNull Appendable html) {
+		String converted = toHtml(readAll(requireNonNull(rtfStream, "rtfStream")));
+		try {
+			requireNonNull(html, "html").append(converted);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write HTML output.", e);
+		}
+	}
+
+	/**
+	 * Channel variant of {@link #toHtml(InputStream, Appendable)}. The channel is not closed.
+	 */
+	default void toHtml(@NotNull ReadableByteChannel rtfChannel, @NotNull Appendable html) {
+		toHtml(Channels.newInputStream(requireNonNull(rtfChannel, "rtfChannel")), html);
+	}
+
+	/**
+	 * Writes the HTML to {@code html} encoded as UTF-8, the same bytes as {@code toHtml(rtfBytes).getBytes(UTF_8)}. The
+	 * stream is not closed.
+	 * <p>
+	 * The default implementation encodes the converted {@code String}; the standard and Outlook converters encode HTML
+	 * while converting, escaping text as it is encoded, so the output never exists as a {@code String}.
+	 */
+	default void toHtmlUtf8(@NotNull byte[] rtfBytes, @NotNull OutputStream html) {
+		byte[] converted = toHtml(rtfBytes).getBytes(StandardCharsets.UTF_8);
+		try {
+			requireNonNull(html, "html").write(converted);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write HTML output.", e);
+		}
+	}
+
+	/**
+	 * String variant of {@link #toHtmlUtf8(byte[], OutputStream)}.
+	 */
+	default void toHtmlUtf8(@NotNull String rtf, @NotNull OutputStream html) {
+		byte[] converted = toHtml(rtf).getBytes(StandardCharsets.UTF_8);
+		try {
+			requireNonNull(html, "html").write(converted);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write HTML output.", e);
+		}
+	}
+
+	/**
+	 * Stream variant of {@link #toHtmlUtf8(byte[], OutputStream)}, converting like {@link #toHtml(InputStream, Appendable)}.
+	 * Neither stream is closed.
+	 */
+	default void toHtmlUtf8(@NotNull InputStream rtfStream, @NotNull OutputStream html) {
+		Utf8HtmlWriter writer = new Utf8HtmlWriter(requireNonNull(html, "html"));
+		toHtml(rtfStream, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the HTML encoded as UTF-8 into {@code html} from its position on, for example a pooled direct buffer.
+	 *
+	 * @return the number of bytes written.
+	 * @throws java.nio.BufferOverflowException if the HTML does not fit; the bytes written up to then stay in the buffer.
+	 */
+	default int toHtmlUtf8(@NotNull byte[] rtfBytes, @NotNull ByteBuffer html) {
+		int startPosition = requireNonNull(html, "html").position();
+		html.put(toHtml(rtfBytes).getBytes(StandardCharsets.UTF_8));
+		return html.position() - startPosition;
+	}
+
+	/**
+	 * Converts an Outlook {@code PR_RTF_COMPRESSED} body (MS-OXRTFCP), decompressing it through a
+	 * {@link CompressedRtfInputStream} while converting, so the uncompressed RTF is never held in full by the streaming
+	 * converters. The stream is not closed.
+	 */
+	default void toHtmlFromCompressedRtf(@NotNull InputStream compressedRtfStream, @NotNull Appendable html) {
+		toHtml(new CompressedRtfInputStream(requireNonNull(compressedRtfStream, "compressedRtfStream")), html);
+	}
+
+	/**
+	 * {@link #toHtmlFromCompressedRtf(InputStream, Appendable)} returning the HTML as a string.
+	 */
+	@NotNull
+	default String toHtmlFromCompressedRtf(@NotNull InputStream compressedRtfStream) {
+		StringBuilder html = new StringBuilder();
+		toHtmlFromCompressedRtf(compressedRtfStream, html);
+		return html.toString();
+	}
+
+	/**
+	 * Converts an RTF file. The default implementation reads the file into memory; the standard and Outlook
+	 * converters memory-map it instead.
+	 */
+	@NotNull
+	default String toHtml(@NotNull Path rtfFile) {
+		try {
+			return toHtml(Files.readAllBytes(requireNonNull(rtfFile, "rtfFile")));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not read RTF file: " + rtfFile, e);
+		}
+	}
 }
@@ -12,9 +12,13 @@ public final class RtfToHtmlOptions {
 	private static final RtfToHtmlOptions DEFAULTS = builder().build();
 
 	private final RtfImageHandler imageHandler;
+	private final boolean cssClasses;
+	private final long imageSpillThreshold;
 
 	private RtfToHtmlOptions(@NotNull Builder builder) {
 		this.imageHandler = builder.imageHandler;
+		this.cssClasses = builder.cssClasses;
+		this.imageSpillThreshold = builder.imageSpillThreshold;
 	}
 
 	@NotNull
@@ -32,9 +36,19 @@ public final class RtfToHtmlOptions {
 		return imageHandler;
 	}
 
+	public boolean isCssClasses() {
+		return cssClasses;
+	}
+
+	public long getImageSpillThreshold() {
+		return imageSpillThreshold;
+	}
+
 	public static final class Builder {
 
 		private RtfImageHandler imageHandler = RtfImageHandler.SKIP;
+		private boolean cssClasses;
+		private long imageSpillThreshold = Long.MAX_VALUE;
 
 		private Builder() {
 		}
@@ -45,6 +59,33 @@ public final class RtfToHtmlOptions {
 			return this;
 		}
 
+		/**
+		 * Makes generic rendering write each distinct character style and paragraph alignment once, as a class in a
+		 * {@code <style>} block in the document head, and refer to it by class name instead of repeating inline
+		 * {@code style} attributes. As the stylesheet is only complete at the end, streamed conversions then write
+		 * their output in one go when the input is exhausted.
+		 */
+		@NotNull
+		public Builder cssClasses(boolean cssClasses) {
+			this.cssClasses = cssClasses;
+			return this;
+		}
+
+		/**
+		 * Writes picture payloads of more than this many bytes to a temporary file as they are decoded, so that
+		 * conversion memory stays bounded whatever the size of embedded images. The handler reads such an image
+		 * through {@link RtfImage#openChannel()} or {@link RtfImage#openStream()}, and the file is deleted as soon as
+		 * the handler returns. By default, payloads are always kept in memory.
+		 */
+		@NotNull
+		public Builder imageSpillThreshold(long imageSpillThreshold) {
+			if (imageSpillThreshold < 0) {
+				throw new IllegalArgumentException("imageSpillThreshold must not be negative: " + imageSpillThreshold);
+			}
+			this.imageSpillThreshold = imageSpillThreshold;
+			return this;
+		}
+
 		@NotNull
 		public RtfToHtmlOptions build() {
 			return new RtfToHtmlOptions(this);
@@ -0,0 +1,15 @@
+package org.bbottema.rtftohtml;
+
+/**
+ * Token kinds reported by {@link RtfReader}.
+ */
+public enum RtfTokenType {
+	GROUP_START,
+	GROUP_END,
+	CONTROL_WORD,
+	CONTROL_SYMBOL,
+	TEXT,
+	HEX_BYTES,
+	BINARY,
+	END_OF_INPUT
+}
@@ -2,6 +2,9 @@ package org.bbottema.rtftohtml.impl.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 public final class ByteUtil {
@@ -29,4 +32,19 @@ public final class ByteUtil {
 		}
 		return data;
 	}
+
+	@NotNull
+	public static byte[] readAll(@NotNull InputStream inputStream) {
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+			return outputStream.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not read RTF input stream.", e);
+		}
+	}
 }
\ No newline at end of file
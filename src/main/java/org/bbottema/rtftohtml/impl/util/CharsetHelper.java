@@ -17,6 +17,7 @@ public class CharsetHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CharsetHelper.class);
     private static final String[] CHARSET_PREFIXES = {"", "cp", "iso-", "ibm", "x-windows-", "ms"};
+    private static final Pattern ANSICPG = Pattern.compile("\\\\ansicpg(\\d+)");
 
     public static Charset findCharsetForCodePage(String rtfCodePage) {
         return rtfCodePage.equals("65001") || rtfCodePage.equalsIgnoreCase("cp65001")
@@ -42,7 +43,7 @@ public class CharsetHelper {
 
     @Nullable
     public static Charset detectCharsetByAnsicpg(String rtfContent) {
-        Matcher matcher = Pattern.compile("\\\\ansicpg(\\d+)").matcher(rtfContent);
+        Matcher matcher = ANSICPG.matcher(rtfContent);
         if (matcher.find()) {
             int codePage = Integer.parseInt(matcher.group(1));
             try {
@@ -0,0 +1,123 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.bbottema.rtftohtml.model.RtfControlWords;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Open-addressing symbol table that resolves control word names straight from {@link RtfInput} offsets.
+ * <p>
+ * Known words resolve against a shared table of canonical names; any other word is interned into the tokenizer's own
+ * table the first time it is seen, so each distinct name is allocated at most once per document.
+ */
+final class ControlWordTable {
+
+	private static final ControlWordTable KNOWN_WORDS = knownWords();
+
+	private String[] names;
+	private int[] hashes;
+	private int[] codes;
+	private int size;
+
+	ControlWordTable() {
+		this(64);
+	}
+
+	private ControlWordTable(int capacity) {
+		names = new String[capacity];
+		hashes = new int[capacity];
+		codes = new int[capacity];
+	}
+
+	/**
+	 * @return the slot holding the word between the offsets, resolving it against the known words first and interning
+	 * it here when it is not known. Slots below {@code -1} refer to the shared known words.
+	 */
+	int resolve(@NotNull RtfInput input, int startIndex, int endIndex) {
+		int hash = 0;
+		for (int i = startIndex; i < endIndex; i++) {
+			hash = 31 * hash + input.read(i);
+		}
+		int known = KNOWN_WORDS.find(input, startIndex, endIndex, hash);
+		if (known != -1) {
+			return -known - 2;
+		}
+		int slot = find(input, startIndex, endIndex, hash);
+		return slot != -1 ? slot : add(input.text(startIndex, endIndex), hash, RtfControlWords.UNKNOWN);
+	}
+
+	@NotNull
+	String name(int slot) {
+		return slot < -1 ? KNOWN_WORDS.names[-slot - 2] : names[slot];
+	}
+
+	int code(int slot) {
+		return slot < -1 ? KNOWN_WORDS.codes[-slot - 2] : codes[slot];
+	}
+
+	private int find(@NotNull RtfInput input, int startIndex, int endIndex, int hash) {
+		int mask = names.length - 1;
+		for (int slot = mix(hash) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+			if (hashes[slot] == hash && matches(names[slot], input, startIndex, endIndex)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private int add(@NotNull String name, int hash, int code) {
+		if ((size + 1) * 2 > names.length) {
+			grow();
+		}
+		int mask = names.length - 1;
+		int slot = mix(hash) & mask;
+		while (names[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		names[slot] = name;
+		hashes[slot] = hash;
+		codes[slot] = code;
+		size++;
+		return slot;
+	}
+
+	private void grow() {
+		String[] oldNames = names;
+		int[] oldHashes = hashes;
+		int[] oldCodes = codes;
+		names = new String[oldNames.length * 2];
+		hashes = new int[names.length];
+		codes = new int[names.length];
+		size = 0;
+		for (int slot = 0; slot < oldNames.length; slot++) {
+			if (oldNames[slot] != null) {
+				add(oldNames[slot], oldHashes[slot], oldCodes[slot]);
+			}
+		}
+	}
+
+	private static boolean matches(@NotNull String name, @NotNull RtfInput input, int startIndex, int endIndex) {
+		if (name.length() != endIndex - startIndex) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (input.read(startIndex + i) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	@NotNull
+	private static ControlWordTable knownWords() {
+		ControlWordTable table = new ControlWordTable(512);
+		String name;
+		for (int code = 0; (name = RtfControlWords.nameOf(code)) != null; code++) {
+			table.add(name, name.hashCode(), code);
+		}
+		return table;
+	}
+}
@@ -0,0 +1,260 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.bbottema.rtftohtml.RtfTape;
+import org.bbottema.rtftohtml.RtfTokenType;
+import org.bbottema.rtftohtml.model.RtfControlSymbol;
+import org.bbottema.rtftohtml.model.RtfControlWord;
+import org.bbottema.rtftohtml.model.RtfControlWords;
+import org.bbottema.rtftohtml.model.RtfDocument;
+import org.bbottema.rtftohtml.model.RtfGroup;
+import org.bbottema.rtftohtml.model.RtfHeader;
+import org.bbottema.rtftohtml.model.RtfNode;
+import org.bbottema.rtftohtml.model.RtfSkippedGroup;
+import org.bbottema.rtftohtml.model.RtfText;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Collects an {@link RtfHeader} from a document's preamble: the first top-level group up to its first body content,
+ * meaning text outside a destination group such as the font table or an {@code \*\htmltag}. Token input, parsed
+ * trees, and tapes are fed through the same state machine, and every scan stops as soon as the preamble ends.
+ */
+public final class HeaderScanner {
+
+	private int depth;
+	private boolean destinationWordPending;
+	private int destinationDepth;
+	private int fontTableDepth;
+	private int ignoredDepth;
+	private int currentFont = -1;
+	private final StringBuilder fontName = new StringBuilder();
+	private final Map<Integer, String> fontNames = new HashMap<>();
+	private final Map<Integer, Integer> fontCharsets = new LinkedHashMap<>();
+	private boolean fromHtml;
+	private boolean fromText;
+	private Integer ansiCodePage;
+	private Integer defaultFont;
+	private boolean finished;
+
+	private HeaderScanner() {
+	}
+
+	@NotNull
+	public static RtfHeader scan(@NotNull RtfInput input) {
+		HeaderScanner scanner = new HeaderScanner();
+		RtfTokenizer tokenizer = new RtfTokenizer(input);
+		RtfTokenType token;
+		while (!scanner.finished && (token = tokenizer.next()) != RtfTokenType.END_OF_INPUT) {
+			switch (token) {
+				case GROUP_START:
+					scanner.groupStart();
+					break;
+				case GROUP_END:
+					scanner.groupEnd();
+					break;
+				case CONTROL_WORD:
+					scanner.controlWord(tokenizer.getControlWordCode(), tokenizer.hasParameter(), tokenizer.getParameter());
+					break;
+				case CONTROL_SYMBOL:
+					scanner.controlSymbol(tokenizer.getSymbol());
+					break;
+				case TEXT:
+					scanner.content(tokenizer.getTextView());
+					break;
+				default:
+					scanner.content(null);
+			}
+		}
+		return scanner.header();
+	}
+
+	/**
+	 * @return the header the document captured while parsing, or else the header scanned from its tree.
+	 */
+	@NotNull
+	public static RtfHeader scan(@NotNull RtfDocument document) {
+		RtfHeader header = document.getHeader();
+		return header != null ? header : scan(document.getRoot());
+	}
+
+	/**
+	 * Walks only as much of the tree as the preamble covers, so groups of a lazily parsed document past it stay unloaded.
+	 */
+	@NotNull
+	public static RtfHeader scan(@NotNull RtfGroup root) {
+		HeaderScanner scanner = new HeaderScanner();
+		LinkedList<Iterator<RtfNode>> openGroups = new LinkedList<>();
+		openGroups.addFirst(root.getChildren().iterator());
+		while (!scanner.finished && !openGroups.isEmpty()) {
+			Iterator<RtfNode> children = openGroups.getFirst();
+			if (!children.hasNext()) {
+				openGroups.removeFirst();
+				scanner.groupEnd();
+				continue;
+			}
+			RtfNode node = children.next();
+			if (node instanceof RtfGroup) {
+				scanner.groupStart();
+				openGroups.addFirst(((RtfGroup) node).getChildren().iterator());
+			} else if (node instanceof RtfControlWord) {
+				RtfControlWord controlWord = (RtfControlWord) node;
+				Integer parameter = controlWord.getParameter();
+				scanner.controlWord(controlWord.getCode(), parameter != null, parameter == null ? 0 : parameter);
+			} else if (node instanceof RtfControlSymbol) {
+				scanner.controlSymbol(((RtfControlSymbol) node).getSymbol());
+			} else if (node instanceof RtfText) {
+				scanner.content(((RtfText) node).asCharSequence());
+			} else if (!(node instanceof RtfSkippedGroup)) {
+				scanner.content(null);
+			}
+		}
+		return scanner.header();
+	}
+
+	@NotNull
+	public static RtfHeader scan(@NotNull RtfTape tape) {
+		HeaderScanner scanner = new HeaderScanner();
+		LinkedList<Integer> openGroups = new LinkedList<>();
+		openGroups.addFirst(0);
+		for (int node = 1; node < tape.size() && !scanner.finished; node++) {
+			while (openGroups.getFirst() != tape.getParent(node)) {
+				openGroups.removeFirst();
+				scanner.groupEnd();
+			}
+			switch (tape.getKind(node)) {
+				case GROUP_START:
+					scanner.groupStart();
+					openGroups.addFirst(node);
+					break;
+				case CONTROL_WORD:
+					scanner.controlWord(tape.getControlWordCode(node), tape.hasParameter(node), tape.getParameter(node));
+					break;
+				case CONTROL_SYMBOL:
+					scanner.controlSymbol(tape.getSymbol(node));
+					break;
+				case TEXT:
+					scanner.content(tape.getText(node));
+					break;
+				default:
+					scanner.content(null);
+			}
+		}
+		return scanner.header();
+	}
+
+	private void groupStart() {
+		depth++;
+		destinationWordPending = true;
+	}
+
+	private void groupEnd() {
+		destinationWordPending = false;
+		if (fontTableDepth != 0 && depth <= fontTableDepth + 1) {
+			finishFontEntry();
+		}
+		if (depth == ignoredDepth) {
+			ignoredDepth = 0;
+		}
+		if (depth == fontTableDepth) {
+			fontTableDepth = 0;
+			currentFont = -1;
+		}
+		if (depth == destinationDepth) {
+			destinationDepth = 0;
+		}
+		if (depth > 0 && --depth == 0) {
+			finished = true;
+		}
+	}
+
+	private void controlWord(int code, boolean hasParameter, int parameter) {
+		if (destinationWordPending) {
+			destinationWordPending = false;
+			if (code >= RtfControlWords.FONTTBL && code <= RtfControlWords.MMATH_PR && destinationDepth == 0) {
+				destinationDepth = depth;
+			}
+			if (code == RtfControlWords.FONTTBL && fontTableDepth == 0) {
+				fontTableDepth = depth;
+			}
+		}
+
+		if (code == RtfControlWords.FROMHTML) {
+			fromHtml = true;
+		} else if (code == RtfControlWords.FROMTEXT) {
+			fromText = true;
+		} else if (code == RtfControlWords.ANSICPG && hasParameter && ansiCodePage == null) {
+			ansiCodePage = parameter;
+		} else if (code == RtfControlWords.DEFF && hasParameter && defaultFont == null) {
+			defaultFont = parameter;
+		} else if (fontTableDepth != 0 && ignoredDepth == 0 && hasParameter) {
+			if (code == RtfControlWords.F) {
+				finishFontEntry();
+				currentFont = parameter;
+			} else if (code == RtfControlWords.FCHARSET && currentFont != -1) {
+				fontCharsets.put(currentFont, parameter);
+			}
+		}
+	}
+
+	private void controlSymbol(char symbol) {
+		if (symbol == '*' && destinationWordPending) {
+			if (destinationDepth == 0) {
+				destinationDepth = depth;
+			}
+			if (fontTableDepth != 0 && ignoredDepth == 0) {
+				ignoredDepth = depth;
+			}
+			return;
+		}
+		destinationWordPending = false;
+	}
+
+	/**
+	 * @param text the text, or {@code null} for binary or hex content.
+	 */
+	private void content(@Nullable CharSequence text) {
+		destinationWordPending = false;
+		if (destinationDepth == 0) {
+			finished = depth > 0 && (text == null || !isWhitespace(text));
+			return;
+		}
+		if (text != null && fontTableDepth != 0 && ignoredDepth == 0 && currentFont != -1 && !fontNames.containsKey(currentFont)) {
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == ';') {
+					finishFontEntry();
+					return;
+				}
+				fontName.append(text.charAt(i));
+			}
+		}
+	}
+
+	private void finishFontEntry() {
+		String name = fontName.toString().trim();
+		if (currentFont != -1 && !name.isEmpty() && !fontNames.containsKey(currentFont)) {
+			fontNames.put(currentFont, name);
+		}
+		fontName.setLength(0);
+	}
+
+	@NotNull
+	private RtfHeader header() {
+		String defaultFontName = defaultFont == null ? null : fontNames.get(defaultFont);
+		return new RtfHeader(fromHtml, fromText, ansiCodePage, defaultFont, defaultFontName, fontCharsets);
+	}
+
+	private static boolean isWhitespace(@NotNull CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,186 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that decodes hex digits straight into bytes through a nibble lookup table, used for
+ * {@code \'hh} runs and {@code \pict} payloads. Buffers are meant to be {@link #clear() cleared} and reused.
+ * <p>
+ * Digits are paired across calls, so a payload split over several text runs decodes as one; a trailing unpaired digit
+ * is dropped.
+ */
+final class HexByteBuffer {
+
+	private static final byte[] NIBBLES = new byte[128];
+
+	static {
+		Arrays.fill(NIBBLES, (byte) -1);
+		for (int c = '0'; c <= '9'; c++) {
+			NIBBLES[c] = (byte) (c - '0');
+		}
+		for (int c = 'a'; c <= 'f'; c++) {
+			NIBBLES[c] = (byte) (c - 'a' + 10);
+			NIBBLES[c - 'a' + 'A'] = (byte) (c - 'a' + 10);
+		}
+	}
+
+	private byte[] bytes;
+	private int size;
+	private int pendingNibble = -1;
+
+	HexByteBuffer() {
+		this(64);
+	}
+
+	HexByteBuffer(int initialCapacity) {
+		bytes = new byte[Math.max(16, initialCapacity)];
+	}
+
+	/**
+	 * @return the value of a hex digit, or {@code -1} for any other character.
+	 */
+	static int nibble(int c) {
+		return c >= 0 && c < NIBBLES.length ? NIBBLES[c] : -1;
+	}
+
+	/**
+	 * Decodes a run of {@code \'hh} escapes, which {@link RtfTokenizer} has already validated.
+	 */
+	static void decodeEscapes(@NotNull RtfInput input, int startIndex, int endIndex, @NotNull byte[] target, int targetOffset) {
+		int cursor = startIndex;
+		for (int i = targetOffset; cursor < endIndex; i++, cursor += 4) {
+			target[i] = (byte) (NIBBLES[input.read(cursor + 2)] << 4 | NIBBLES[input.read(cursor + 3)]);
+		}
+	}
+
+	void appendEscapes(@NotNull RtfInput input, int startIndex, int endIndex) {
+		int count = (endIndex - startIndex) / 4;
+		ensureCapacity(size + count);
+		decodeEscapes(input, startIndex, endIndex, bytes, size);
+		size += count;
+	}
+
+	/**
+	 * Decodes the hex digits in {@code text}, skipping whitespace and any other non-hex characters. While no digit is
+	 * pending, digits are decoded in pairs straight into the buffer; text views of byte input are read as bytes.
+	 */
+	void appendHexDigits(@NotNull CharSequence text) {
+		ByteBuffer latin1 = RtfInput.latin1Bytes(text);
+		if (latin1 != null) {
+			appendHexDigits(latin1);
+			return;
+		}
+		int length = text.length();
+		ensureCapacity(size + (length + 1) / 2);
+		int i = 0;
+		while (i < length) {
+			if (pendingNibble == -1 && i + 1 < length) {
+				int high = nibble(text.charAt(i));
+				int low = nibble(text.charAt(i + 1));
+				if ((high | low) >= 0) {
+					bytes[size++] = (byte) (high << 4 | low);
+					i += 2;
+					continue;
+				}
+			}
+			int nibble = nibble(text.charAt(i++));
+			if (nibble != -1) {
+				appendNibble(nibble);
+			}
+		}
+	}
+
+	private void appendHexDigits(@NotNull ByteBuffer digits) {
+		int end = digits.limit();
+		ensureCapacity(size + (digits.remaining() + 1) / 2);
+		int i = digits.position();
+		while (i < end) {
+			if (pendingNibble == -1 && i + 1 < end) {
+				int high = nibble(digits.get(i) & 0xff);
+				int low = nibble(digits.get(i + 1) & 0xff);
+				if ((high | low) >= 0) {
+					bytes[size++] = (byte) (high << 4 | low);
+					i += 2;
+					continue;
+				}
+			}
+			int nibble = nibble(digits.get(i++) & 0xff);
+			if (nibble != -1) {
+				appendNibble(nibble);
+			}
+		}
+	}
+
+	/**
+	 * Appends raw bytes, as if their hex digits had been appended. Unless an odd hex digit is pending, which shifts
+	 * every byte by a nibble, they are copied in bulk.
+	 */
+	void append(@NotNull ByteBuffer raw) {
+		ensureCapacity(size + raw.remaining() + 1);
+		if (pendingNibble == -1) {
+			int count = raw.remaining();
+			raw.duplicate().get(bytes, size, count);
+			size += count;
+			return;
+		}
+		for (int i = raw.position(); i < raw.limit(); i++) {
+			int b = raw.get(i) & 0xff;
+			appendNibble(b >>> 4);
+			appendNibble(b & 0x0f);
+		}
+	}
+
+	void clear() {
+		size = 0;
+		pendingNibble = -1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the decoded bytes to the channel and empties the buffer, keeping a pending digit for the next append.
+	 */
+	void drainTo(@NotNull WritableByteChannel channel) throws IOException {
+		ByteBuffer decoded = view();
+		while (decoded.hasRemaining()) {
+			channel.write(decoded);
+		}
+		size = 0;
+	}
+
+	/**
+	 * @return a view of the decoded bytes, valid until the buffer is next changed.
+	 */
+	@NotNull
+	ByteBuffer view() {
+		return ByteBuffer.wrap(bytes, 0, size);
+	}
+
+	@NotNull
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	private void appendNibble(int nibble) {
+		if (pendingNibble == -1) {
+			pendingNibble = nibble;
+		} else {
+			ensureCapacity(size + 1);
+			bytes[size++] = (byte) (pendingNibble << 4 | nibble);
+			pendingNibble = -1;
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+		}
+	}
+}
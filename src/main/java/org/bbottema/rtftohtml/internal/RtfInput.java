@@ -0,0 +1,403 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Random-access view of RTF source consumed by {@link RtfTokenizer}.
+ * <p>
+ * Byte input is scanned directly as 8-bit characters, so RTF delivered as bytes is never widened into a full
+ * ISO-8859-1 {@code String}; only the token ranges a caller actually asks for are decoded.
+ */
+public abstract class RtfInput {
+
+	@NotNull
+	public static RtfInput of(@NotNull String rtf) {
+		return new StringInput(requireNonNull(rtf, "rtf"));
+	}
+
+	@NotNull
+	public static RtfInput of(@NotNull byte[] rtfBytes) {
+		return of(ByteBuffer.wrap(requireNonNull(rtfBytes, "rtfBytes")));
+	}
+
+	/**
+	 * Reads the remaining bytes of the buffer without copying them. Offsets are relative to the buffer's position.
+	 */
+	@NotNull
+	public static RtfInput of(@NotNull ByteBuffer rtfBytes) {
+		return new ByteBufferInput(requireNonNull(rtfBytes, "rtfBytes").slice());
+	}
+
+	/**
+	 * Maps the file read-only, so its bytes are paged in by the operating system instead of being copied onto the heap.
+	 */
+	@NotNull
+	public static RtfInput map(@NotNull Path rtfFile) {
+		try (FileChannel channel = FileChannel.open(requireNonNull(rtfFile, "rtfFile"), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("RTF file is too large to map: " + rtfFile + " (" + size + " bytes)");
+			}
+			return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not read RTF file: " + rtfFile, e);
+		}
+	}
+
+	/**
+	 * Reads the stream on demand in chunks of {@code chunkSize} bytes. Only the bytes of tokens that have not been
+	 * {@link #release(int) released} yet are kept, so memory stays proportional to the largest single token rather
+	 * than to the document. The stream is not closed.
+	 */
+	@NotNull
+	public static RtfInput of(@NotNull InputStream rtfStream, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		return new StreamInput(requireNonNull(rtfStream, "rtfStream"), chunkSize);
+	}
+
+	/**
+	 * @return the character at the given offset, or {@code -1} when the offset is past the end of the input.
+	 */
+	public abstract int read(int index);
+
+	/**
+	 * @return the offset after skipping up to {@code count} characters, clamped to the end of the input.
+	 */
+	public int skip(int index, int count) {
+		int cursor = index;
+		while (cursor - index < count && read(cursor) != -1) {
+			cursor++;
+		}
+		return cursor;
+	}
+
+	/**
+	 * Signals that offsets before {@code index} will not be read again. Streamed input uses this to drop consumed
+	 * bytes; in-memory input ignores it.
+	 */
+	public void release(int index) {
+	}
+
+	@NotNull
+	public abstract String text(int startIndex, int endIndex);
+
+	@NotNull
+	public abstract byte[] bytes(int startIndex, int endIndex);
+
+	/**
+	 * @return the characters between the offsets without copying them. For streamed input the view is only valid until
+	 * the range is {@link #release(int) released}.
+	 */
+	@NotNull
+	public abstract CharSequence textView(int startIndex, int endIndex);
+
+	/**
+	 * @return the bytes between the offsets, as a view where the input is held as bytes and as a copy otherwise. For
+	 * streamed input the view is only valid until the range is {@link #release(int) released}.
+	 */
+	@NotNull
+	public abstract ByteBuffer byteView(int startIndex, int endIndex);
+
+	/**
+	 * @return the full source as a character sequence; byte input is exposed as ISO-8859-1 without copying.
+	 */
+	@NotNull
+	public abstract CharSequence source();
+
+	public abstract boolean isBytePreserving();
+
+	/**
+	 * @return whether every offset stays readable for as long as the input is referenced, which is the case for all but
+	 * streamed input.
+	 */
+	public boolean isRetained() {
+		return true;
+	}
+
+	private static final class StringInput extends RtfInput {
+
+		private final String rtf;
+
+		private StringInput(@NotNull String rtf) {
+			this.rtf = rtf;
+		}
+
+		@Override
+		public int read(int index) {
+			return index < rtf.length() ? rtf.charAt(index) : -1;
+		}
+
+		@Override
+		public int skip(int index, int count) {
+			return (int) Math.min(rtf.length(), (long) index + count);
+		}
+
+		@NotNull
+		@Override
+		public String text(int startIndex, int endIndex) {
+			return rtf.substring(startIndex, endIndex);
+		}
+
+		@NotNull
+		@Override
+		public byte[] bytes(int startIndex, int endIndex) {
+			byte[] bytes = new byte[endIndex - startIndex];
+			for (int i = startIndex; i < endIndex; i++) {
+				bytes[i - startIndex] = (byte) rtf.charAt(i);
+			}
+			return bytes;
+		}
+
+		@NotNull
+		@Override
+		public CharSequence textView(int startIndex, int endIndex) {
+			return CharBuffer.wrap(rtf, startIndex, endIndex);
+		}
+
+		@NotNull
+		@Override
+		public ByteBuffer byteView(int startIndex, int endIndex) {
+			return ByteBuffer.wrap(bytes(startIndex, endIndex));
+		}
+
+		@NotNull
+		@Override
+		public CharSequence source() {
+			return rtf;
+		}
+
+		@Override
+		public boolean isBytePreserving() {
+			return false;
+		}
+	}
+
+	private static final class ByteBufferInput extends RtfInput {
+
+		private final ByteBuffer buffer;
+		private final int limit;
+
+		private ByteBufferInput(@NotNull ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.limit = buffer.limit();
+		}
+
+		@Override
+		public int read(int index) {
+			return index < limit ? buffer.get(index) & 0xff : -1;
+		}
+
+		@Override
+		public int skip(int index, int count) {
+			return (int) Math.min(limit, (long) index + count);
+		}
+
+		@NotNull
+		@Override
+		public String text(int startIndex, int endIndex) {
+			if (buffer.hasArray()) {
+				return new String(buffer.array(), buffer.arrayOffset() + startIndex, endIndex - startIndex, StandardCharsets.ISO_8859_1);
+			}
+			return new String(bytes(startIndex, endIndex), StandardCharsets.ISO_8859_1);
+		}
+
+		@NotNull
+		@Override
+		public byte[] bytes(int startIndex, int endIndex) {
+			byte[] bytes = new byte[endIndex - startIndex];
+			ByteBuffer range = buffer.duplicate();
+			range.position(startIndex);
+			range.get(bytes);
+			return bytes;
+		}
+
+		@NotNull
+		@Override
+		public CharSequence textView(int startIndex, int endIndex) {
+			return new Latin1Sequence(byteView(startIndex, endIndex));
+		}
+
+		@NotNull
+		@Override
+		public ByteBuffer byteView(int startIndex, int endIndex) {
+			ByteBuffer range = buffer.duplicate();
+			range.limit(endIndex);
+			range.position(startIndex);
+			return range.slice();
+		}
+
+		@NotNull
+		@Override
+		public CharSequence source() {
+			return new Latin1Sequence(buffer);
+		}
+
+		@Override
+		public boolean isBytePreserving() {
+			return true;
+		}
+	}
+
+	private static final class StreamInput extends RtfInput {
+
+		private final InputStream stream;
+		private byte[] window;
+		private int windowStart;
+		private int windowEnd;
+		private int releasedIndex;
+		private boolean endOfStream;
+
+		private StreamInput(@NotNull InputStream stream, int chunkSize) {
+			this.stream = stream;
+			this.window = new byte[chunkSize];
+		}
+
+		@Override
+		public int read(int index) {
+			if (index >= windowEnd && !fill(index)) {
+				return -1;
+			}
+			return window[index - windowStart] & 0xff;
+		}
+
+		@Override
+		public void release(int index) {
+			releasedIndex = Math.max(releasedIndex, Math.min(index, windowEnd));
+		}
+
+		@NotNull
+		@Override
+		public String text(int startIndex, int endIndex) {
+			return new String(window, startIndex - windowStart, endIndex - startIndex, StandardCharsets.ISO_8859_1);
+		}
+
+		@NotNull
+		@Override
+		public byte[] bytes(int startIndex, int endIndex) {
+			return Arrays.copyOfRange(window, startIndex - windowStart, endIndex - windowStart);
+		}
+
+		@NotNull
+		@Override
+		public CharSequence textView(int startIndex, int endIndex) {
+			return new Latin1Sequence(byteView(startIndex, endIndex));
+		}
+
+		@NotNull
+		@Override
+		public ByteBuffer byteView(int startIndex, int endIndex) {
+			return ByteBuffer.wrap(window, startIndex - windowStart, endIndex - startIndex).slice();
+		}
+
+		@NotNull
+		@Override
+		public CharSequence source() {
+			throw new UnsupportedOperationException("Streamed RTF input is not retained.");
+		}
+
+		@Override
+		public boolean isBytePreserving() {
+			return true;
+		}
+
+		@Override
+		public boolean isRetained() {
+			return false;
+		}
+
+		private boolean fill(int index) {
+			try {
+				while (index >= windowEnd) {
+					if (endOfStream) {
+						return false;
+					}
+					makeRoom();
+					int buffered = windowEnd - windowStart;
+					int read = stream.read(window, buffered, window.length - buffered);
+					if (read == -1) {
+						endOfStream = true;
+					} else {
+						windowEnd += read;
+					}
+				}
+				return true;
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Could not read RTF input stream.", e);
+			}
+		}
+
+		private void makeRoom() {
+			if (windowEnd - windowStart < window.length) {
+				return;
+			}
+			if (releasedIndex > windowStart) {
+				System.arraycopy(window, releasedIndex - windowStart, window, 0, windowEnd - releasedIndex);
+				windowStart = releasedIndex;
+			}
+			if (windowEnd - windowStart == window.length) {
+				window = Arrays.copyOf(window, window.length * 2);
+			}
+		}
+	}
+
+	/**
+	 * @return the bytes behind a {@link #textView(int, int) text view} of byte input, one per character, or
+	 * {@code null} for any other character sequence.
+	 */
+	@Nullable
+	static ByteBuffer latin1Bytes(@NotNull CharSequence text) {
+		return text instanceof Latin1Sequence ? ((Latin1Sequence) text).buffer.duplicate() : null;
+	}
+
+	/**
+	 * ISO-8859-1 character view over a byte buffer; {@link #toString()} is the only operation that copies.
+	 */
+	private static final class Latin1Sequence implements CharSequence {
+
+		private final ByteBuffer buffer;
+
+		private Latin1Sequence(@NotNull ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int length() {
+			return buffer.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(index) & 0xff);
+		}
+
+		@NotNull
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			ByteBuffer range = buffer.duplicate();
+			range.limit(end);
+			range.position(start);
+			return new Latin1Sequence(range.slice());
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return new ByteBufferInput(buffer).text(0, buffer.limit());
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Brace-only scanning, used to split a document into segments which can be tokenized independently and to
+ * fast-forward over groups without tokenizing them.
+ * <p>
+ * Segments start right before a {@code \{} that opens a group directly inside the first top-level group, so every
+ * segment after the first begins at depth 1 and on a token boundary. The scan only tracks braces: it steps over
+ * escaped characters and over {@code \binN} payloads exactly like {@link RtfTokenizer}, but does not tokenize anything
+ * else.
+ */
+public final class RtfSegmenter {
+
+	private RtfSegmenter() {
+	}
+
+	/**
+	 * @return the offsets at which segments of at least {@code segmentSize} characters start, in ascending order; empty
+	 * when the document cannot be split.
+	 */
+	@NotNull
+	public static int[] findSplitPoints(@NotNull RtfInput input, int segmentSize) {
+		int[] splitPoints = new int[16];
+		int count = 0;
+		int depth = 0;
+		int nextSplit = segmentSize;
+		int index = 0;
+		int c;
+		while ((c = input.read(index)) != -1) {
+			if (c == '{') {
+				if (depth == 1 && index >= nextSplit) {
+					if (count == splitPoints.length) {
+						splitPoints = Arrays.copyOf(splitPoints, count * 2);
+					}
+					splitPoints[count++] = index;
+					nextSplit = index + segmentSize;
+				}
+				depth++;
+				index++;
+			} else if (c == '}') {
+				if (depth > 0 && --depth == 0) {
+					break;
+				}
+				index++;
+			} else if (c == '\\') {
+				index = skipControl(input, index);
+			} else {
+				index++;
+			}
+		}
+		return Arrays.copyOf(splitPoints, count);
+	}
+
+	/**
+	 * @return the start and end offset of every group in document order, as consecutive pairs. The end is the offset
+	 * after the closing brace, or {@code -1} for a group that is never closed. Unbalanced closing braces are ignored, as
+	 * {@link RtfTokenizer#emit(org.bbottema.rtftohtml.RtfEventHandler)} drops them.
+	 */
+	@NotNull
+	public static int[] findGroups(@NotNull RtfInput input) {
+		int[] groups = new int[64];
+		int count = 0;
+		int[] openGroups = new int[16];
+		int depth = 0;
+		int index = 0;
+		int c;
+		while ((c = input.read(index)) != -1) {
+			if (c == '{') {
+				if (2 * count == groups.length) {
+					groups = Arrays.copyOf(groups, groups.length * 2);
+				}
+				if (depth == openGroups.length) {
+					openGroups = Arrays.copyOf(openGroups, depth * 2);
+				}
+				groups[2 * count] = index;
+				groups[2 * count + 1] = -1;
+				openGroups[depth++] = count++;
+				index++;
+			} else if (c == '}') {
+				index++;
+				if (depth > 0) {
+					groups[2 * openGroups[--depth] + 1] = index;
+				}
+			} else if (c == '\\') {
+				index = skipControl(input, index);
+			} else {
+				index++;
+			}
+		}
+		return Arrays.copyOf(groups, 2 * count);
+	}
+
+	/**
+	 * @return the offset just after the {@code \}} that closes the group whose content starts at {@code index}, or the
+	 * bitwise complement of the input length if the group is never closed.
+	 */
+	public static int findGroupEnd(@NotNull RtfInput input, int index) {
+		int depth = 1;
+		int c;
+		while ((c = input.read(index)) != -1) {
+			if (c == '{') {
+				depth++;
+				index++;
+			} else if (c == '}') {
+				index++;
+				if (--depth == 0) {
+					return index;
+				}
+			} else if (c == '\\') {
+				index = skipControl(input, index);
+			} else {
+				index++;
+			}
+		}
+		return ~index;
+	}
+
+	private static int skipControl(@NotNull RtfInput input, int slashIndex) {
+		int cursor = slashIndex + 1;
+		int first = input.read(cursor);
+		if (first == -1) {
+			return cursor;
+		}
+		if (!isAsciiLetter(first)) {
+			return cursor + 1;
+		}
+
+		int wordStart = cursor;
+		while (isAsciiLetter(input.read(cursor))) {
+			cursor++;
+		}
+		if (cursor - wordStart != 3
+				|| input.read(wordStart) != 'b' || input.read(wordStart + 1) != 'i' || input.read(wordStart + 2) != 'n') {
+			return cursor;
+		}
+
+		int sign = 1;
+		if (input.read(cursor) == '-') {
+			sign = -1;
+			cursor++;
+		}
+		boolean hasParameter = false;
+		int value = 0;
+		int c = input.read(cursor);
+		while (c >= '0' && c <= '9') {
+			hasParameter = true;
+			value = value * 10 + (c - '0');
+			c = input.read(++cursor);
+		}
+		if (!hasParameter) {
+			return cursor;
+		}
+		if (c == ' ') {
+			cursor++;
+		}
+		return input.skip(cursor, Math.max(0, sign * value));
+	}
+
+	private static boolean isAsciiLetter(int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+}
@@ -1,31 +1,50 @@
 package org.bbottema.rtftohtml.internal;
 
 import org.bbottema.rtftohtml.RtfImage;
+import org.bbottema.rtftohtml.RtfTape;
 import org.bbottema.rtftohtml.RtfToHtmlOptions;
 import org.bbottema.rtftohtml.impl.util.CharsetHelper;
 import org.bbottema.rtftohtml.impl.util.CodePage;
 import org.bbottema.rtftohtml.model.RtfBinary;
 import org.bbottema.rtftohtml.model.RtfControlSymbol;
 import org.bbottema.rtftohtml.model.RtfControlWord;
+import org.bbottema.rtftohtml.model.RtfControlWords;
 import org.bbottema.rtftohtml.model.RtfDocument;
-import org.bbottema.rtftohtml.model.RtfGroup;
+import org.bbottema.rtftohtml.model.RtfHeader;
 import org.bbottema.rtftohtml.model.RtfHexBytes;
 import org.bbottema.rtftohtml.model.RtfNode;
+import org.bbottema.rtftohtml.model.RtfPosition;
 import org.bbottema.rtftohtml.model.RtfText;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Objects.requireNonNull;
-import static org.bbottema.rtftohtml.impl.util.ByteUtil.hexStringToByteArray;
 
 public final class RtfToHtmlEngine {
 
+	private static final int MAX_RESOLVED_CODE_PAGES = 256;
+	private static final Map<Integer, Optional<Charset>> RESOLVED_CODE_PAGES = new ConcurrentHashMap<>();
+
 	private final RtfToHtmlOptions options;
 
 	public RtfToHtmlEngine(@NotNull RtfToHtmlOptions options) {
@@ -39,65 +58,140 @@ public final class RtfToHtmlEngine {
 
 	@NotNull
 	public String renderOutlook(@NotNull RtfDocument document) {
-		return render(requireNonNull(document, "document"), detectMode(document));
+		return render(requireNonNull(document, "document"), detectMode(HeaderScanner.scan(document)));
+	}
+
+	@NotNull
+	public String renderStandard(@NotNull RtfTape tape) {
+		return render(requireNonNull(tape, "tape"), Mode.GENERIC);
+	}
+
+	@NotNull
+	public String renderOutlook(@NotNull RtfTape tape) {
+		return render(requireNonNull(tape, "tape"), detectMode(HeaderScanner.scan(tape)));
+	}
+
+	/**
+	 * Converts straight from the token stream, without building an {@link RtfDocument} tree first.
+	 */
+	@NotNull
+	public String renderStandard(@NotNull RtfInput input) {
+		return render(requireNonNull(input, "input"), Mode.GENERIC);
+	}
+
+	/**
+	 * Converts straight from the token stream, without building an {@link RtfDocument} tree first.
+	 */
+	@NotNull
+	public String renderOutlook(@NotNull RtfInput input) {
+		return render(requireNonNull(input, "input"), detectMode(HeaderScanner.scan(input)));
+	}
+
+	/**
+	 * Converts straight from the token stream and appends HTML to {@code html} in chunks as it is produced. Input
+	 * bytes are released as soon as they are consumed, so memory depends on group depth rather than document size.
+	 */
+	public void renderStandard(@NotNull RtfInput input, @NotNull Appendable html) {
+		render(requireNonNull(input, "input"), Mode.GENERIC, requireNonNull(html, "html"));
+	}
+
+	/**
+	 * Streaming variant of {@link #renderOutlook(RtfInput)}. The Outlook markers are looked up in the RTF header only,
+	 * which MS-OXRTFEX requires them to be in, so the input never has to be buffered in full.
+	 */
+	public void renderOutlook(@NotNull RtfInput input, @NotNull Appendable html) {
+		render(requireNonNull(input, "input"), detectMode(HeaderScanner.scan(input)), requireNonNull(html, "html"));
 	}
 
 	@NotNull
 	private String render(@NotNull RtfDocument document, @NotNull Mode mode) {
-		Conversion conversion = new Conversion(mode, document.isBytePreservingInput());
-		walkDocument(document, conversion);
-		return conversion.result();
+		Scratch scratch = Scratch.acquire();
+		try {
+			Conversion conversion = new Conversion(mode, document.isBytePreservingInput(), scratch);
+			RenderingHandler handler = new RenderingHandler(conversion);
+			RtfTreeWalker.walk(document.getRoot(), handler);
+			handler.onDocumentEnd(document.getRoot().getPosition().getEndOffset());
+			return conversion.result();
+		} finally {
+			scratch.release(true);
+		}
 	}
 
-	private void walkDocument(@NotNull RtfDocument document, @NotNull Conversion conversion) {
-		for (RtfNode child : document.getRoot().getChildren()) {
-			if (child instanceof RtfGroup) {
-				walkGroup((RtfGroup) child, new State(), conversion);
-				return;
-			}
+	@NotNull
+	private String render(@NotNull RtfTape tape, @NotNull Mode mode) {
+		Scratch scratch = Scratch.acquire();
+		try {
+			Conversion conversion = new Conversion(mode, tape.isBytePreservingInput(), scratch);
+			tape.replay(new RenderingHandler(conversion));
+			return conversion.result();
+		} finally {
+			scratch.release(true);
 		}
-		walkGroup(document.getRoot(), new State(), conversion);
 	}
 
-	private Mode detectMode(@NotNull RtfDocument document) {
-		String source = document.getSource();
-		if (source.matches("(?s).*\\\\fromhtml\\d*\\b.*")) {
-			return Mode.FROM_HTML;
+	@NotNull
+	private String render(@NotNull RtfInput input, @NotNull Mode mode) {
+		Scratch scratch = Scratch.acquire();
+		try {
+			Conversion conversion = new Conversion(mode, input.isBytePreserving(), scratch);
+			conversion.retainedInput = input.isRetained() ? input : null;
+			new RtfTokenizer(input).emit(new RenderingHandler(conversion));
+			return conversion.result();
+		} finally {
+			scratch.release(true);
+		}
+	}
+
+	/**
+	 * Streamed output is flushed in chunks, so its buffer sizes say nothing about document size and are not recorded.
+	 */
+	private void render(@NotNull RtfInput input, @NotNull Mode mode, @NotNull Appendable html) {
+		Scratch scratch = Scratch.acquire();
+		try {
+			Conversion conversion = new Conversion(mode, input.isBytePreserving(), scratch);
+			conversion.sink = html;
+			conversion.retainedInput = input.isRetained() ? input : null;
+			new RtfTokenizer(input).emit(new RenderingHandler(conversion));
+			conversion.finish();
+		} finally {
+			scratch.release(false);
 		}
-		if (source.matches("(?s).*\\\\fromtext\\b.*")) {
-			return Mode.FROM_TEXT;
+	}
+
+	/**
+	 * Outlook markers only count in the RTF header, which MS-OXRTFEX requires them to be in, so mode detection never
+	 * looks past the preamble.
+	 */
+	@NotNull
+	private static Mode detectMode(@NotNull RtfHeader header) {
+		if (header.isFromHtml()) {
+			return Mode.FROM_HTML;
 		}
-		return Mode.GENERIC;
+		return header.isFromText() ? Mode.FROM_TEXT : Mode.GENERIC;
 	}
 
-	private void walkGroup(@NotNull RtfGroup group, @NotNull State state, @NotNull Conversion conversion) {
-		for (RtfNode node : group.getChildren()) {
-			if (node instanceof RtfGroup) {
-				walkGroup((RtfGroup) node, state.copyForGroup(), conversion);
-			} else if (node instanceof RtfControlWord) {
-				handleControlWord((RtfControlWord) node, state, conversion);
-			} else if (node instanceof RtfControlSymbol) {
-				handleControlSymbol((RtfControlSymbol) node, state, conversion);
-			} else if (node instanceof RtfHexBytes) {
-				appendBytes(((RtfHexBytes) node).getBytes(), state, conversion);
-			} else if (node instanceof RtfBinary) {
-				appendBinary(((RtfBinary) node).getBytes(), state, conversion);
-			} else if (node instanceof RtfText) {
-				appendSourceText(((RtfText) node).getText(), state, conversion);
-			}
+	private void dispatch(@NotNull RtfNode node, @NotNull State state, @NotNull Conversion conversion) {
+		if (node instanceof RtfControlWord) {
+			RtfControlWord controlWord = (RtfControlWord) node;
+			handleControlWord(controlWord.getName(), controlWord.getCode(), controlWord.getParameter(), state, conversion);
+		} else if (node instanceof RtfControlSymbol) {
+			handleControlSymbol(((RtfControlSymbol) node).getSymbol(), state, conversion);
+		} else if (node instanceof RtfHexBytes) {
+			appendBytes(((RtfHexBytes) node).asByteBuffer(), state, conversion);
+		} else if (node instanceof RtfBinary) {
+			appendBinary(((RtfBinary) node).asByteBuffer(), -1, -1, state, conversion);
+		} else if (node instanceof RtfText) {
+			appendSourceText(((RtfText) node).asCharSequence(), -1, -1, state, conversion);
 		}
-		onGroupEnd(state, conversion);
 	}
 
-	private void handleControlWord(@NotNull RtfControlWord control, @NotNull State state,
+	private void handleControlWord(@NotNull String word, int code, Integer parameter, @NotNull State state,
 								   @NotNull Conversion conversion) {
 		if (consumeUnicodeFallbackControl(conversion)) {
 			return;
 		}
 
-		String word = control.getName();
-		Integer parameter = control.getParameter();
-		if (setDestination(word, state)) {
+		if (setDestination(word, code, state, conversion)) {
 			return;
 		}
 
@@ -111,13 +205,13 @@ public final class RtfToHtmlEngine {
 			return;
 		}
 
-		if ("ansicpg".equals(word) && parameter != null) {
+		if (code == RtfControlWords.ANSICPG && parameter != null) {
 			conversion.defaultCharset = findCharsetForCodePage(parameter, conversion.defaultCharset);
 			return;
 		}
 
 		if (state.destination == Destination.FONT_TABLE) {
-			handleFontTableControl(word, parameter, state, conversion);
+			handleFontTableControl(code, parameter, state, conversion);
 			return;
 		}
 
@@ -126,103 +220,104 @@ public final class RtfToHtmlEngine {
 		}
 
 		if (state.destination == Destination.PICT) {
-			handlePictControl(word, parameter, state);
+			handlePictControl(code, parameter, state);
 			return;
 		}
 
-		if ("uc".equals(word)) {
+		if (code == RtfControlWords.UC) {
 			state.unicodeFallbackLength = parameter == null ? 1 : Math.max(0, parameter);
 			return;
 		}
 
-		if ("u".equals(word) && parameter != null) {
+		if (code == RtfControlWords.U && parameter != null) {
 			appendUnicode(parameter, state, conversion);
 			return;
 		}
 
-		if ("f".equals(word) && parameter != null) {
+		if (code == RtfControlWords.F && parameter != null) {
+			state.hasFont = true;
 			state.currentFont = parameter;
 			return;
 		}
 
-		if ("htmlrtf".equals(word)) {
+		if (code == RtfControlWords.HTMLRTF) {
 			state.htmlRtf = parameter == null || parameter != 0;
 			return;
 		}
 
 		if (state.destination == Destination.HTML_TAG) {
-			handleHtmlTagControl(word, conversion);
+			handleHtmlTagControl(code, conversion);
 			return;
 		}
 
-		if ("par".equals(word)) {
+		if (code == RtfControlWords.PAR) {
 			appendParagraphBreak(state, conversion);
-		} else if ("line".equals(word)) {
+		} else if (code == RtfControlWords.LINE) {
 			appendLineBreak(state, conversion);
-		} else if ("tab".equals(word)) {
+		} else if (code == RtfControlWords.TAB) {
 			appendLiteralText("\t", state, conversion);
 		} else {
-			handleGenericFormatting(word, parameter, state);
+			handleGenericFormatting(code, parameter, state);
 		}
 	}
 
-	private boolean setDestination(@NotNull String word, @NotNull State state) {
-		if ("fonttbl".equals(word)) {
-			state.destination = Destination.FONT_TABLE;
-			state.pendingIgnorableDestination = false;
-			return true;
-		}
-		if ("colortbl".equals(word)) {
-			state.destination = Destination.COLOR_TABLE;
-			state.pendingIgnorableDestination = false;
-			return true;
-		}
-		if (word.startsWith("htmltag")) {
-			state.destination = Destination.HTML_TAG;
-			state.pendingIgnorableDestination = false;
-			return true;
-		}
-		if ("pntext".equals(word)) {
-			state.destination = Destination.PN_TEXT;
-			state.pendingIgnorableDestination = false;
-			return true;
-		}
-		if ("pict".equals(word)) {
-			state.destination = Destination.PICT;
-			state.pictBuilder = new PictBuilder();
-			state.ownsPictBuilder = true;
-			state.pendingIgnorableDestination = false;
-			return true;
-		}
-		if (isKnownSkippedDestination(word)) {
-			state.destination = Destination.SKIP;
-			state.pendingIgnorableDestination = false;
-			return true;
+	private boolean setDestination(@NotNull String word, int code, @NotNull State state, @NotNull Conversion conversion) {
+		switch (code) {
+			case RtfControlWords.FONTTBL:
+				state.destination = Destination.FONT_TABLE;
+				break;
+			case RtfControlWords.COLORTBL:
+				state.destination = Destination.COLOR_TABLE;
+				break;
+			case RtfControlWords.HTMLTAG:
+				state.destination = Destination.HTML_TAG;
+				break;
+			case RtfControlWords.PNTEXT:
+				state.destination = Destination.PN_TEXT;
+				break;
+			case RtfControlWords.PICT:
+				state.destination = Destination.PICT;
+				state.pictBuilder = new PictBuilder(conversion.retainedInput, options.getImageSpillThreshold(),
+						conversion.scratch.spilledPictures);
+				state.ownsPictBuilder = true;
+				break;
+			default:
+				if (code == RtfControlWords.UNKNOWN && word.startsWith("htmltag")) {
+					state.destination = Destination.HTML_TAG;
+				} else if (isKnownSkippedDestination(code)) {
+					state.destination = Destination.SKIP;
+				} else {
+					return false;
+				}
 		}
-		return false;
+		state.pendingIgnorableDestination = false;
+		return true;
 	}
 
-	private boolean isKnownSkippedDestination(@NotNull String word) {
-		return "stylesheet".equals(word)
-				|| "info".equals(word)
-				|| "generator".equals(word)
-				|| "formatConverter".equals(word)
-				|| "listtable".equals(word)
-				|| "listoverridetable".equals(word)
-				|| "revtbl".equals(word)
-				|| "xmlnstbl".equals(word)
-				|| "themedata".equals(word)
-				|| "colorschememapping".equals(word)
-				|| "datastore".equals(word);
+	private boolean isKnownSkippedDestination(int code) {
+		switch (code) {
+			case RtfControlWords.STYLESHEET:
+			case RtfControlWords.INFO:
+			case RtfControlWords.GENERATOR:
+			case RtfControlWords.FORMAT_CONVERTER:
+			case RtfControlWords.LISTTABLE:
+			case RtfControlWords.LISTOVERRIDETABLE:
+			case RtfControlWords.REVTBL:
+			case RtfControlWords.XMLNSTBL:
+			case RtfControlWords.THEMEDATA:
+			case RtfControlWords.COLORSCHEMEMAPPING:
+			case RtfControlWords.DATASTORE:
+				return true;
+			default:
+				return false;
+		}
 	}
 
-	private void handleControlSymbol(@NotNull RtfControlSymbol control, @NotNull State state,
-									 @NotNull Conversion conversion) {
+	private void handleControlSymbol(char symbol, @NotNull State state, @NotNull Conversion conversion) {
 		if (consumeUnicodeFallbackControl(conversion)) {
 			return;
 		}
 
-		char symbol = control.getSymbol();
 		if (symbol == '*') {
 			state.pendingIgnorableDestination = true;
 		} else if (symbol == '{' || symbol == '}' || symbol == '\\') {
@@ -236,89 +331,118 @@ public final class RtfToHtmlEngine {
 		}
 	}
 
-	private void handleFontTableControl(@NotNull String word, Integer parameter, @NotNull State state,
+	private void handleFontTableControl(int code, Integer parameter, @NotNull State state,
 										@NotNull Conversion conversion) {
-		if ("f".equals(word) && parameter != null) {
+		if (code == RtfControlWords.F && parameter != null) {
+			state.hasFont = true;
 			state.currentFont = parameter;
 			state.fontEntry = conversion.fontTable.get(parameter);
 			if (state.fontEntry == null) {
 				state.fontEntry = new FontEntry();
 				conversion.fontTable.put(parameter, state.fontEntry);
 			}
-		} else if ("fcharset".equals(word) && parameter != null && state.fontEntry != null) {
+		} else if (code == RtfControlWords.FCHARSET && parameter != null && state.fontEntry != null) {
 			state.fontEntry.charset = CodePage.getCharsetByCodePage(parameter);
-		} else if ("cpg".equals(word) && parameter != null && state.fontEntry != null) {
+		} else if (code == RtfControlWords.CPG && parameter != null && state.fontEntry != null) {
 			state.fontEntry.charset = findCharsetForCodePage(parameter, state.fontEntry.charset);
 		}
 	}
 
-	private void handlePictControl(@NotNull String word, Integer parameter, @NotNull State state) {
+	private void handlePictControl(int code, Integer parameter, @NotNull State state) {
 		PictBuilder pict = state.pictBuilder;
 		if (pict == null) {
 			return;
 		}
 
-		if ("pngblip".equals(word)) {
-			pict.format = "png";
-		} else if ("jpegblip".equals(word)) {
-			pict.format = "jpeg";
-		} else if ("emfblip".equals(word)) {
-			pict.format = "emf";
-		} else if ("wmetafile".equals(word)) {
-			pict.format = "wmf";
-		} else if ("macpict".equals(word)) {
-			pict.format = "pict";
-		} else if ("picw".equals(word)) {
-			pict.widthPixels = parameter;
-		} else if ("pich".equals(word)) {
-			pict.heightPixels = parameter;
-		} else if ("picwgoal".equals(word)) {
-			pict.widthGoalTwips = parameter;
-		} else if ("pichgoal".equals(word)) {
-			pict.heightGoalTwips = parameter;
-		}
-	}
-
-	private void handleHtmlTagControl(@NotNull String word, @NotNull Conversion conversion) {
-		if ("par".equals(word) || "line".equals(word)) {
+		switch (code) {
+			case RtfControlWords.PNGBLIP:
+				pict.format = "png";
+				break;
+			case RtfControlWords.JPEGBLIP:
+				pict.format = "jpeg";
+				break;
+			case RtfControlWords.EMFBLIP:
+				pict.format = "emf";
+				break;
+			case RtfControlWords.WMETAFILE:
+				pict.format = "wmf";
+				break;
+			case RtfControlWords.MACPICT:
+				pict.format = "pict";
+				break;
+			case RtfControlWords.PICW:
+				pict.widthPixels = parameter;
+				break;
+			case RtfControlWords.PICH:
+				pict.heightPixels = parameter;
+				break;
+			case RtfControlWords.PICWGOAL:
+				pict.widthGoalTwips = parameter;
+				break;
+			case RtfControlWords.PICHGOAL:
+				pict.heightGoalTwips = parameter;
+				break;
+			default:
+		}
+	}
+
+	private void handleHtmlTagControl(int code, @NotNull Conversion conversion) {
+		if (code == RtfControlWords.PAR || code == RtfControlWords.LINE) {
 			conversion.html.append('\n');
-		} else if ("tab".equals(word)) {
+		} else if (code == RtfControlWords.TAB) {
 			conversion.html.append('\t');
 		}
 	}
 
-	private void handleGenericFormatting(@NotNull String word, Integer parameter, @NotNull State state) {
-		if ("plain".equals(word)) {
-			state.bold = false;
-			state.italic = false;
-			state.underline = false;
-			state.strike = false;
-			state.hidden = false;
-			state.fontSizeHalfPoints = null;
-		} else if ("pard".equals(word)) {
-			state.alignment = null;
-		} else if ("b".equals(word)) {
-			state.bold = parameter == null || parameter != 0;
-		} else if ("i".equals(word)) {
-			state.italic = parameter == null || parameter != 0;
-		} else if ("ul".equals(word)) {
-			state.underline = parameter == null || parameter != 0;
-		} else if ("ulnone".equals(word)) {
-			state.underline = false;
-		} else if ("strike".equals(word) || "striked".equals(word)) {
-			state.strike = parameter == null || parameter != 0;
-		} else if ("v".equals(word)) {
-			state.hidden = parameter == null || parameter != 0;
-		} else if ("fs".equals(word) && parameter != null) {
-			state.fontSizeHalfPoints = parameter;
-		} else if ("qc".equals(word)) {
-			state.alignment = "center";
-		} else if ("qr".equals(word)) {
-			state.alignment = "right";
-		} else if ("qj".equals(word)) {
-			state.alignment = "justify";
-		} else if ("ql".equals(word)) {
-			state.alignment = null;
+	private void handleGenericFormatting(int code, Integer parameter, @NotNull State state) {
+		switch (code) {
+			case RtfControlWords.PLAIN:
+				state.bold = false;
+				state.italic = false;
+				state.underline = false;
+				state.strike = false;
+				state.hidden = false;
+				state.hasFontSize = false;
+				break;
+			case RtfControlWords.PARD:
+			case RtfControlWords.QL:
+				state.alignment = State.ALIGN_DEFAULT;
+				break;
+			case RtfControlWords.B:
+				state.bold = parameter == null || parameter != 0;
+				break;
+			case RtfControlWords.I:
+				state.italic = parameter == null || parameter != 0;
+				break;
+			case RtfControlWords.UL:
+				state.underline = parameter == null || parameter != 0;
+				break;
+			case RtfControlWords.ULNONE:
+				state.underline = false;
+				break;
+			case RtfControlWords.STRIKE:
+			case RtfControlWords.STRIKED:
+				state.strike = parameter == null || parameter != 0;
+				break;
+			case RtfControlWords.V:
+				state.hidden = parameter == null || parameter != 0;
+				break;
+			case RtfControlWords.FS:
+				if (parameter != null) {
+					state.hasFontSize = true;
+					state.fontSizeHalfPoints = parameter;
+				}
+				break;
+			case RtfControlWords.QC:
+				state.alignment = State.ALIGN_CENTER;
+				break;
+			case RtfControlWords.QR:
+				state.alignment = State.ALIGN_RIGHT;
+				break;
+			case RtfControlWords.QJ:
+				state.alignment = State.ALIGN_JUSTIFY;
+				break;
+			default:
 		}
 	}
 
@@ -350,53 +474,65 @@ public final class RtfToHtmlEngine {
 		}
 	}
 
-	private void appendBytes(@NotNull byte[] bytes, @NotNull State state, @NotNull Conversion conversion) {
-		byte[] effectiveBytes = consumeUnicodeFallbackBytes(bytes, conversion);
-		if (effectiveBytes.length == 0) {
+	private void appendBytes(@NotNull ByteBuffer bytes, @NotNull State state, @NotNull Conversion conversion) {
+		ByteBuffer effectiveBytes = consumeUnicodeFallbackBytes(bytes, conversion);
+		if (!effectiveBytes.hasRemaining()) {
 			return;
 		}
 		if (state.destination == Destination.PICT && state.pictBuilder != null) {
 			state.pictBuilder.append(effectiveBytes);
 			return;
 		}
-		appendDecodedText(new String(effectiveBytes, charsetFor(state, conversion)), state, conversion);
+		appendDecodedText(decode(effectiveBytes, charsetFor(state, conversion)), state, conversion);
 	}
 
-	private void appendBinary(@NotNull byte[] bytes, @NotNull State state, @NotNull Conversion conversion) {
-		byte[] effectiveBytes = consumeUnicodeFallbackBytes(bytes, conversion);
-		if (effectiveBytes.length == 0) {
+	/**
+	 * @param startOffset the offset of the {@code \binN} control word, or {@code -1} if unknown.
+	 * @param endOffset the offset after the payload, or {@code -1} if unknown.
+	 */
+	private void appendBinary(@NotNull ByteBuffer bytes, int startOffset, int endOffset, @NotNull State state,
+							  @NotNull Conversion conversion) {
+		ByteBuffer effectiveBytes = consumeUnicodeFallbackBytes(bytes, conversion);
+		if (!effectiveBytes.hasRemaining()) {
 			return;
 		}
 		if (state.destination == Destination.PICT && state.pictBuilder != null) {
-			state.pictBuilder.append(effectiveBytes);
+			boolean located = startOffset >= 0 && endOffset - startOffset >= bytes.remaining();
+			state.pictBuilder.appendBinary(effectiveBytes, located ? endOffset : -1);
 		}
 	}
 
-	private void appendSourceText(@NotNull String text, @NotNull State state, @NotNull Conversion conversion) {
-		appendText(text, state, conversion, true, true);
+	private void appendSourceText(@NotNull CharSequence text, int startOffset, int endOffset, @NotNull State state,
+								  @NotNull Conversion conversion) {
+		boolean located = startOffset >= 0 && endOffset - startOffset == text.length();
+		appendText(text, state, conversion, true, true, located ? endOffset : -1);
 	}
 
 	private void appendDecodedText(@NotNull String text, @NotNull State state, @NotNull Conversion conversion) {
-		appendText(text, state, conversion, false, false);
+		appendText(text, state, conversion, false, false, -1);
 	}
 
 	private void appendLiteralText(@NotNull String text, @NotNull State state, @NotNull Conversion conversion) {
-		appendText(text, state, conversion, false, false);
+		appendText(text, state, conversion, false, false, -1);
 	}
 
-	private void appendText(@NotNull String text, @NotNull State state, @NotNull Conversion conversion,
-							boolean consumeFallback, boolean decodeBytePreservingInput) {
-		if (text.isEmpty()) {
+	/**
+	 * @param sourceEnd the offset in the input where {@code text} ends, or {@code -1} if it does not come straight from
+	 * the input.
+	 */
+	private void appendText(@NotNull CharSequence text, @NotNull State state, @NotNull Conversion conversion,
+							boolean consumeFallback, boolean decodeBytePreservingInput, int sourceEnd) {
+		if (text.length() == 0) {
 			return;
 		}
 
-		String effectiveSourceText = consumeFallback ? consumeUnicodeFallbackText(text, conversion) : text;
-		if (effectiveSourceText.isEmpty()) {
+		CharSequence effectiveSourceText = consumeFallback ? consumeUnicodeFallbackText(text, conversion) : text;
+		if (effectiveSourceText.length() == 0) {
 			return;
 		}
 
 		if (state.destination == Destination.PICT && state.pictBuilder != null) {
-			state.pictBuilder.appendHexText(effectiveSourceText);
+			state.pictBuilder.appendHexText(effectiveSourceText, sourceEnd);
 			return;
 		}
 
@@ -411,7 +547,7 @@ public final class RtfToHtmlEngine {
 			return;
 		}
 
-		String effectiveText = decodeBytePreservingInput && conversion.bytePreservingInput
+		CharSequence effectiveText = decodeBytePreservingInput && conversion.bytePreservingInput
 				? decodeBytePreservingText(effectiveSourceText, charsetFor(state, conversion))
 				: effectiveSourceText;
 
@@ -442,26 +578,46 @@ public final class RtfToHtmlEngine {
 	}
 
 	@NotNull
-	private String consumeUnicodeFallbackText(@NotNull String text, @NotNull Conversion conversion) {
+	private CharSequence consumeUnicodeFallbackText(@NotNull CharSequence text, @NotNull Conversion conversion) {
 		if (conversion.unicodeFallbackToSkip == 0) {
 			return text;
 		}
 		int charsToSkip = Math.min(text.length(), conversion.unicodeFallbackToSkip);
 		conversion.unicodeFallbackToSkip -= charsToSkip;
-		return text.substring(charsToSkip);
+		return text.subSequence(charsToSkip, text.length());
 	}
 
 	@NotNull
-	private byte[] consumeUnicodeFallbackBytes(@NotNull byte[] bytes, @NotNull Conversion conversion) {
+	private ByteBuffer consumeUnicodeFallbackBytes(@NotNull ByteBuffer bytes, @NotNull Conversion conversion) {
 		if (conversion.unicodeFallbackToSkip == 0) {
 			return bytes;
 		}
-		int bytesToSkip = Math.min(bytes.length, conversion.unicodeFallbackToSkip);
+		int bytesToSkip = Math.min(bytes.remaining(), conversion.unicodeFallbackToSkip);
 		conversion.unicodeFallbackToSkip -= bytesToSkip;
-		return Arrays.copyOfRange(bytes, bytesToSkip, bytes.length);
+		ByteBuffer remaining = bytes.duplicate();
+		remaining.position(remaining.position() + bytesToSkip);
+		return remaining;
+	}
+
+	/**
+	 * Decodes without copying the bytes first when the buffer is backed by an array.
+	 */
+	@NotNull
+	private String decode(@NotNull ByteBuffer bytes, @NotNull Charset charset) {
+		if (bytes.hasArray()) {
+			return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), charset);
+		}
+		return new String(toByteArray(bytes), charset);
 	}
 
-	private String decodeBytePreservingText(@NotNull String text, @NotNull Charset charset) {
+	@NotNull
+	private static byte[] toByteArray(@NotNull ByteBuffer bytes) {
+		byte[] copy = new byte[bytes.remaining()];
+		bytes.duplicate().get(copy);
+		return copy;
+	}
+
+	private String decodeBytePreservingText(@NotNull CharSequence text, @NotNull Charset charset) {
 		byte[] bytes = new byte[text.length()];
 		for (int i = 0; i < text.length(); i++) {
 			bytes[i] = (byte) text.charAt(i);
@@ -470,7 +626,7 @@ public final class RtfToHtmlEngine {
 	}
 
 	private Charset charsetFor(@NotNull State state, @NotNull Conversion conversion) {
-		if (state.currentFont != null) {
+		if (state.hasFont) {
 			FontEntry fontEntry = conversion.fontTable.get(state.currentFont);
 			if (fontEntry != null && fontEntry.charset != null) {
 				return fontEntry.charset;
@@ -484,33 +640,130 @@ public final class RtfToHtmlEngine {
 		if (charset != null) {
 			return charset;
 		}
+		Optional<Charset> cached = RESOLVED_CODE_PAGES.get(codePage);
+		if (cached == null) {
+			cached = resolveCodePage(codePage);
+			if (RESOLVED_CODE_PAGES.size() < MAX_RESOLVED_CODE_PAGES) {
+				RESOLVED_CODE_PAGES.put(codePage, cached);
+			}
+		}
+		return cached.orElse(fallback == null ? StandardCharsets.ISO_8859_1 : fallback);
+	}
+
+	/**
+	 * Tries the charset name variants of the code page. Names the JDK does not know are looked up through every
+	 * charset provider each time, which costs far more than a conversion of a small document, hence the cache.
+	 */
+	@NotNull
+	private static Optional<Charset> resolveCodePage(int codePage) {
 		try {
-			return CharsetHelper.findCharsetForCodePage(Integer.toString(codePage));
+			return Optional.of(CharsetHelper.findCharsetForCodePage(Integer.toString(codePage)));
 		} catch (UnsupportedCharsetException e) {
-			return fallback == null ? StandardCharsets.ISO_8859_1 : fallback;
+			return Optional.empty();
 		}
 	}
 
-	private void onGroupEnd(@NotNull State state, @NotNull Conversion conversion) {
-		if (state.ownsPictBuilder && state.pictBuilder != null && !state.htmlRtf && !state.hidden) {
-			RtfImage image = state.pictBuilder.toImage();
-			String src = options.getImageHandler().resolveImage(image);
-			if (src != null && !src.isEmpty()) {
-				if (conversion.mode == Mode.GENERIC) {
-					conversion.generic.appendImage(src, image, state);
-				} else if (conversion.mode == Mode.FROM_HTML) {
-					conversion.html.append("<img src=\"").append(escapeAttribute(src)).append("\">");
+	/**
+	 * Hands a completed picture to the image handler. A temporary file holding its payload only lives until the
+	 * handler returns.
+	 */
+	private void closeGroup(@NotNull State state, @NotNull Conversion conversion) {
+		if (!state.ownsPictBuilder || state.pictBuilder == null) {
+			return;
+		}
+		try {
+			if (!state.htmlRtf && !state.hidden) {
+				RtfImage image = state.pictBuilder.toImage();
+				String src = options.getImageHandler().resolveImage(image);
+				if (src != null && !src.isEmpty()) {
+					if (conversion.mode == Mode.GENERIC) {
+						conversion.generic.appendImage(src, image, state);
+					} else if (conversion.mode == Mode.FROM_HTML) {
+						conversion.html.append("<img src=\"").append(escapeAttribute(src)).append("\">");
+					}
 				}
 			}
+		} finally {
+			state.pictBuilder.release();
 		}
 	}
 
-	private String escapeHtml(@NotNull String text) {
-		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	@NotNull
+	private static String escapeHtml(@NotNull String text) {
+		return escape(text, false);
 	}
 
-	private String escapeAttribute(@NotNull String text) {
-		return escapeHtml(text).replace("\"", "&quot;");
+	@NotNull
+	private static String escapeAttribute(@NotNull String text) {
+		return escape(text, true);
+	}
+
+	/**
+	 * Escapes in one pass, returning the text itself when there is nothing to escape.
+	 */
+	@NotNull
+	private static String escape(@NotNull String text, boolean quotes) {
+		StringBuilder escaped = null;
+		int copiedUpTo = 0;
+		for (int i = 0; i < text.length(); i++) {
+			String entity = entityFor(text.charAt(i), quotes);
+			if (entity != null) {
+				if (escaped == null) {
+					escaped = new StringBuilder(text.length() + 16);
+				}
+				escaped.append(text, copiedUpTo, i).append(entity);
+				copiedUpTo = i + 1;
+			}
+		}
+		return escaped == null ? text : escaped.append(text, copiedUpTo, text.length()).toString();
+	}
+
+	/**
+	 * Appends escaped text in runs between the characters that need an entity; a {@link Utf8HtmlWriter} escapes while
+	 * encoding instead.
+	 */
+	private static void appendEscaped(@NotNull CharSequence text, @NotNull Appendable output) throws IOException {
+		if (output instanceof Utf8HtmlWriter) {
+			((Utf8HtmlWriter) output).appendEscaped(text);
+			return;
+		}
+		int copiedUpTo = 0;
+		for (int i = 0; i < text.length(); i++) {
+			String entity = entityFor(text.charAt(i), false);
+			if (entity != null) {
+				output.append(text, copiedUpTo, i).append(entity);
+				copiedUpTo = i + 1;
+			}
+		}
+		output.append(text, copiedUpTo, text.length());
+	}
+
+	private static void appendEscaped(@NotNull CharSequence text, @NotNull StringBuilder output) {
+		int copiedUpTo = 0;
+		for (int i = 0; i < text.length(); i++) {
+			String entity = entityFor(text.charAt(i), false);
+			if (entity != null) {
+				output.append(text, copiedUpTo, i).append(entity);
+				copiedUpTo = i + 1;
+			}
+		}
+		output.append(text, copiedUpTo, text.length());
+	}
+
+	@Nullable
+	private static String entityFor(char c, boolean quotes) {
+		switch (c) {
+			case '&':
+				return "&amp;";
+			case '<':
+				return "&lt;";
+			case '>':
+				return "&gt;";
+			case '"':
+				return quotes ? "&quot;" : null;
+			default:
+				return null;
+		}
 	}
 
 	private enum Mode {
@@ -529,19 +782,171 @@ public final class RtfToHtmlEngine {
 		SKIP
 	}
 
+	/**
+	 * Applies tokens to the conversion, with the {@link State} of the innermost open group.
+	 * <p>
+	 * Only the first top-level group is rendered. Tokens before it are held back and rendered only when the source
+	 * turns out to contain no group at all, matching how a parsed tree is rendered.
+	 */
+	private final class RenderingHandler implements RtfViewHandler {
+		private final Conversion conversion;
+		private final State state;
+		private List<RtfNode> topLevelResidue;
+		private boolean finished;
+
+		private RenderingHandler(@NotNull Conversion conversion) {
+			this.conversion = conversion;
+			this.state = conversion.scratch.state;
+			this.topLevelResidue = conversion.scratch.topLevelResidue;
+		}
+
+		@Override
+		public void onGroupStart(int startOffset) {
+			if (finished) {
+				return;
+			}
+			if (state.isEmpty()) {
+				topLevelResidue = null;
+			}
+			state.openGroup();
+		}
+
+		@Override
+		public void onGroupEnd(int endOffset) {
+			if (finished) {
+				return;
+			}
+			closeGroup(state, conversion);
+			state.closeGroup();
+			finished = state.isEmpty();
+			conversion.flushIfFull();
+		}
+
+		@Override
+		public void onControlWord(@NotNull String name, int code, boolean hasParameter, int parameter, int startOffset, int endOffset) {
+			if (acceptsTokens()) {
+				handleControlWord(name, code, hasParameter ? parameter : null, state, conversion);
+			} else if (topLevelResidue != null) {
+				topLevelResidue.add(new RtfControlWord(name, code, hasParameter ? parameter : null, new RtfPosition(startOffset, endOffset)));
+			}
+			conversion.flushIfFull();
+		}
+
+		@Override
+		public void onControlSymbol(char symbol, int startOffset, int endOffset) {
+			if (acceptsTokens()) {
+				handleControlSymbol(symbol, state, conversion);
+			} else if (topLevelResidue != null) {
+				topLevelResidue.add(new RtfControlSymbol(symbol, new RtfPosition(startOffset, endOffset)));
+			}
+			conversion.flushIfFull();
+		}
+
+		@Override
+		public void onText(@NotNull String text, int startOffset, int endOffset) {
+			onTextView(text, startOffset, endOffset);
+		}
+
+		@Override
+		public void onTextView(@NotNull CharSequence text, int startOffset, int endOffset) {
+			if (acceptsTokens()) {
+				appendSourceText(text, startOffset, endOffset, state, conversion);
+			} else if (topLevelResidue != null) {
+				topLevelResidue.add(new RtfText(text.toString(), new RtfPosition(startOffset, endOffset)));
+			}
+			conversion.flushIfFull();
+		}
+
+		@Override
+		public void onHexBytes(@NotNull byte[] bytes, int startOffset, int endOffset) {
+			onHexBytesView(ByteBuffer.wrap(bytes), startOffset, endOffset);
+		}
+
+		@Override
+		public void onHexBytesView(@NotNull ByteBuffer bytes, int startOffset, int endOffset) {
+			if (acceptsTokens()) {
+				appendBytes(bytes, state, conversion);
+			} else if (topLevelResidue != null) {
+				topLevelResidue.add(new RtfHexBytes(toByteArray(bytes), new RtfPosition(startOffset, endOffset)));
+			}
+			conversion.flushIfFull();
+		}
+
+		@Override
+		public void onBinary(@NotNull byte[] bytes, int startOffset, int endOffset) {
+			onBinaryView(ByteBuffer.wrap(bytes), startOffset, endOffset);
+		}
+
+		@Override
+		public void onBinaryView(@NotNull ByteBuffer bytes, int startOffset, int endOffset) {
+			if (acceptsTokens()) {
+				appendBinary(bytes, startOffset, endOffset, state, conversion);
+			} else if (topLevelResidue != null) {
+				topLevelResidue.add(new RtfBinary(toByteArray(bytes), new RtfPosition(startOffset, endOffset)));
+			}
+			conversion.flushIfFull();
+		}
+
+		/**
+		 * Skipped destinations render nothing, but their first tokens would have used up a pending Unicode fallback.
+		 */
+		@Override
+		public void onSkippedGroup(@NotNull String destination, int startOffset, int endOffset) {
+			conversion.unicodeFallbackToSkip = 0;
+		}
+
+		@Override
+		public void onDocumentEnd(int endOffset) {
+			if (finished) {
+				return;
+			}
+			if (topLevelResidue != null) {
+				state.reset();
+				for (RtfNode node : topLevelResidue) {
+					dispatch(node, state, conversion);
+				}
+				closeGroup(state, conversion);
+			}
+			while (!state.isEmpty()) {
+				closeGroup(state, conversion);
+				state.closeGroup();
+			}
+			finished = true;
+		}
+
+		private boolean acceptsTokens() {
+			return !finished && !state.isEmpty();
+		}
+	}
+
 	private final class Conversion {
+		private static final int FLUSH_THRESHOLD = 8192;
+
 		private final Mode mode;
 		private final boolean bytePreservingInput;
-		private final Map<Integer, FontEntry> fontTable = new HashMap<>();
-		private final StringBuilder html = new StringBuilder();
-		private final StringBuilder plainText = new StringBuilder();
-		private final GenericHtmlBuilder generic = new GenericHtmlBuilder();
+		private final Scratch scratch;
+		private final Map<Integer, FontEntry> fontTable;
+		private final StringBuilder html;
+		private final StringBuilder plainText;
+		private final GenericHtmlBuilder generic;
 		private Charset defaultCharset = CodePage.WINDOWS_1252.getCharset();
 		private int unicodeFallbackToSkip;
-
-		private Conversion(@NotNull Mode mode, boolean bytePreservingInput) {
+		private Appendable sink;
+		/**
+		 * The input, when it outlives the conversion so that picture payloads can be decoded from it later.
+		 */
+		private RtfInput retainedInput;
+		private boolean prefixWritten;
+
+		private Conversion(@NotNull Mode mode, boolean bytePreservingInput, @NotNull Scratch scratch) {
 			this.mode = mode;
 			this.bytePreservingInput = bytePreservingInput;
+			this.scratch = scratch;
+			this.fontTable = scratch.fontTable;
+			this.html = scratch.html;
+			this.plainText = scratch.plainText;
+			this.generic = new GenericHtmlBuilder(scratch.body, scratch.stylesheet, scratch.classNames);
+			scratch.presize(pending());
 		}
 
 		private StringBuilder text() {
@@ -553,21 +958,196 @@ public final class RtfToHtmlEngine {
 				return html.toString();
 			}
 			if (mode == Mode.FROM_TEXT) {
-				return "<html><body><div style=\"white-space:pre-wrap\">"
-						+ escapeHtml(plainText.toString())
-						+ "</div></body></html>";
+				return prefix() + escapeHtml(plainText.toString()) + suffix();
+			}
+			generic.closeOpenParagraph();
+			return prefix() + generic.body + suffix();
+		}
+
+		/**
+		 * Generic output that refers to CSS classes is held back, as the stylesheet has to be written before it.
+		 */
+		private void flushIfFull() {
+			if (sink != null && !(mode == Mode.GENERIC && options.isCssClasses()) && pending().length() >= FLUSH_THRESHOLD) {
+				flush();
+			}
+		}
+
+		private void finish() {
+			if (mode == Mode.GENERIC) {
+				generic.closeOpenParagraph();
+			}
+			flush();
+			write(suffix());
+		}
+
+		/**
+		 * Moves buffered output to the sink. Every mode only ever appends, so buffers can be drained at any point.
+		 */
+		private void flush() {
+			if (!prefixWritten) {
+				write(prefix());
+				prefixWritten = true;
+			}
+			StringBuilder pending = pending();
+			try {
+				if (mode == Mode.FROM_TEXT) {
+					appendEscaped(pending, sink);
+				} else {
+					sink.append(pending);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not write HTML output.", e);
+			}
+			pending.setLength(0);
+		}
+
+		private void write(@NotNull CharSequence output) {
+			try {
+				sink.append(output);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not write HTML output.", e);
+			}
+		}
+
+		private StringBuilder pending() {
+			return mode == Mode.GENERIC ? generic.body : text();
+		}
+
+		private String prefix() {
+			if (mode == Mode.FROM_TEXT) {
+				return "<html><body><div style=\"white-space:pre-wrap\">";
+			}
+			if (mode != Mode.GENERIC) {
+				return "";
+			}
+			return generic.stylesheet.length() == 0 ? "<html><body>" : "<html><head><style>" + generic.stylesheet + "</style></head><body>";
+		}
+
+		private String suffix() {
+			if (mode == Mode.FROM_TEXT) {
+				return "</div></body></html>";
+			}
+			return mode == Mode.GENERIC ? "</body></html>" : "";
+		}
+	}
+
+	/**
+	 * The buffers of one conversion. A small shared pool hands them out again once cleared, so back-to-back conversions
+	 * do not reallocate them. The output buffer is presized to what recent conversions produced, and buffers a single
+	 * large document grew far beyond that are shrunk before going back into the pool.
+	 */
+	private static final class Scratch {
+		private static final BlockingQueue<Scratch> POOL = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+		private static final int MIN_RETAINED_CAPACITY = 16 * 1024;
+		private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+		private static final int MAX_RETAINED_ENTRIES = 1024;
+
+		/**
+		 * Moving average of the output buffer length; updated without synchronization, as it is only an estimate.
+		 */
+		private static volatile int expectedLength = 1024;
+
+		private final StringBuilder html = new StringBuilder();
+		private final StringBuilder plainText = new StringBuilder();
+		private final StringBuilder body = new StringBuilder();
+		private final StringBuilder stylesheet = new StringBuilder();
+		private Map<Long, String> classNames = new HashMap<>();
+		private final Map<Integer, FontEntry> fontTable = new HashMap<>();
+		private final State state = new State();
+		private List<RtfNode> topLevelResidue = new ArrayList<>();
+		private final List<PictBuilder> spilledPictures = new ArrayList<>();
+
+		@NotNull
+		private static Scratch acquire() {
+			Scratch scratch = POOL.poll();
+			return scratch != null ? scratch : new Scratch();
+		}
+
+		private void presize(@NotNull StringBuilder output) {
+			output.ensureCapacity(expectedLength);
+		}
+
+		/**
+		 * Deletes the temporary files of pictures a failed conversion left open, clears the buffers and returns them to the
+		 * pool, unless it is full.
+		 *
+		 * @param recordLength whether the output length should count towards the presized capacity.
+		 */
+		private void release(boolean recordLength) {
+			for (PictBuilder picture : spilledPictures) {
+				picture.release();
+			}
+			spilledPictures.clear();
+			if (recordLength) {
+				int length = Math.max(html.length(), Math.max(plainText.length(), body.length()));
+				expectedLength += (length - expectedLength) / 8;
+			}
+			int retainedCapacity = Math.min(Math.max(4 * expectedLength, MIN_RETAINED_CAPACITY), MAX_RETAINED_CAPACITY);
+			clear(html, retainedCapacity);
+			clear(plainText, retainedCapacity);
+			clear(body, retainedCapacity);
+			clear(stylesheet, retainedCapacity);
+			if (classNames.size() > MAX_RETAINED_ENTRIES) {
+				classNames = new HashMap<>();
+			} else {
+				classNames.clear();
+			}
+			fontTable.clear();
+			state.clear();
+			if (topLevelResidue.size() > MAX_RETAINED_ENTRIES) {
+				topLevelResidue = new ArrayList<>();
+			} else {
+				topLevelResidue.clear();
+			}
+			POOL.offer(this);
+		}
+
+		private static void clear(@NotNull StringBuilder buffer, int retainedCapacity) {
+			buffer.setLength(0);
+			if (buffer.capacity() > retainedCapacity) {
+				buffer.trimToSize();
 			}
-			return generic.result();
 		}
 	}
 
+	/**
+	 * The formatting state of the innermost open group. Opening a group saves the enclosing group's fields into a
+	 * preallocated stack of primitive frames and closing it restores them, so nesting allocates nothing per group.
+	 */
 	private static final class State {
-		private Destination destination = Destination.NORMAL;
+		private static final int ALIGN_DEFAULT = 0;
+		private static final int ALIGN_CENTER = 1;
+		private static final int ALIGN_RIGHT = 2;
+		private static final int ALIGN_JUSTIFY = 3;
+		private static final String[] ALIGNMENTS = { null, "center", "right", "justify" };
+		private static final Destination[] DESTINATIONS = Destination.values();
+		private static final int INITIAL_DEPTH = 32;
+		private static final int MAX_RETAINED_DEPTH = 8192;
+
+		private static final int PENDING_IGNORABLE_DESTINATION = 1;
+		private static final int HTML_RTF = 1 << 1;
+		private static final int HIDDEN = 1 << 2;
+		private static final int OWNS_PICT_BUILDER = 1 << 3;
+		private static final int BOLD = 1 << 4;
+		private static final int ITALIC = 1 << 5;
+		private static final int UNDERLINE = 1 << 6;
+		private static final int STRIKE = 1 << 7;
+		private static final int HAS_FONT = 1 << 8;
+		private static final int HAS_FONT_SIZE = 1 << 9;
+		private static final int DESTINATION_SHIFT = 16;
+		private static final int ALIGNMENT_SHIFT = 24;
+
+		// per saved group: packed flags with destination and alignment, fallback length, font, font size
+		private static final int FRAME_SIZE = 4;
+
+		private Destination destination;
 		private boolean pendingIgnorableDestination;
 		private boolean htmlRtf;
 		private boolean hidden;
-		private int unicodeFallbackLength = 1;
-		private Integer currentFont;
+		private int unicodeFallbackLength;
+		private boolean hasFont;
+		private int currentFont;
 		private FontEntry fontEntry;
 		private PictBuilder pictBuilder;
 		private boolean ownsPictBuilder;
@@ -575,25 +1155,143 @@ public final class RtfToHtmlEngine {
 		private boolean italic;
 		private boolean underline;
 		private boolean strike;
-		private Integer fontSizeHalfPoints;
-		private String alignment;
-
-		private State copyForGroup() {
-			State copy = new State();
-			copy.destination = destination;
-			copy.htmlRtf = htmlRtf;
-			copy.hidden = hidden;
-			copy.unicodeFallbackLength = unicodeFallbackLength;
-			copy.currentFont = currentFont;
-			copy.fontEntry = fontEntry;
-			copy.pictBuilder = pictBuilder;
-			copy.bold = bold;
-			copy.italic = italic;
-			copy.underline = underline;
-			copy.strike = strike;
-			copy.fontSizeHalfPoints = fontSizeHalfPoints;
-			copy.alignment = alignment;
-			return copy;
+		private boolean hasFontSize;
+		private int fontSizeHalfPoints;
+		private int alignment;
+
+		private int depth;
+		private int[] frames = new int[INITIAL_DEPTH * FRAME_SIZE];
+		private FontEntry[] fontEntries = new FontEntry[INITIAL_DEPTH];
+		private PictBuilder[] pictBuilders = new PictBuilder[INITIAL_DEPTH];
+
+		private State() {
+			reset();
+		}
+
+		/**
+		 * Resets to the state of a document's top-level group.
+		 */
+		private void reset() {
+			destination = Destination.NORMAL;
+			pendingIgnorableDestination = false;
+			htmlRtf = false;
+			hidden = false;
+			unicodeFallbackLength = 1;
+			hasFont = false;
+			currentFont = 0;
+			fontEntry = null;
+			pictBuilder = null;
+			ownsPictBuilder = false;
+			bold = false;
+			italic = false;
+			underline = false;
+			strike = false;
+			hasFontSize = false;
+			fontSizeHalfPoints = 0;
+			alignment = ALIGN_DEFAULT;
+		}
+
+		private boolean isEmpty() {
+			return depth == 0;
+		}
+
+		/**
+		 * Enters a group, which inherits everything but a pending {@code \*} and the ownership of a picture.
+		 */
+		private void openGroup() {
+			if (depth == 0) {
+				reset();
+			} else {
+				save(depth - 1);
+				pendingIgnorableDestination = false;
+				ownsPictBuilder = false;
+			}
+			depth++;
+		}
+
+		/**
+		 * Leaves the innermost group, restoring the state of the group around it.
+		 */
+		private void closeGroup() {
+			depth--;
+			if (depth > 0) {
+				restore(depth - 1);
+			}
+		}
+
+		private void save(int level) {
+			if (level == fontEntries.length) {
+				frames = Arrays.copyOf(frames, 2 * frames.length);
+				fontEntries = Arrays.copyOf(fontEntries, 2 * fontEntries.length);
+				pictBuilders = Arrays.copyOf(pictBuilders, 2 * pictBuilders.length);
+			}
+			int frame = level * FRAME_SIZE;
+			frames[frame] = flag(pendingIgnorableDestination, PENDING_IGNORABLE_DESTINATION)
+					| flag(htmlRtf, HTML_RTF)
+					| flag(hidden, HIDDEN)
+					| flag(ownsPictBuilder, OWNS_PICT_BUILDER)
+					| flag(bold, BOLD)
+					| flag(italic, ITALIC)
+					| flag(underline, UNDERLINE)
+					| flag(strike, STRIKE)
+					| flag(hasFont, HAS_FONT)
+					| flag(hasFontSize, HAS_FONT_SIZE)
+					| destination.ordinal() << DESTINATION_SHIFT
+					| alignment << ALIGNMENT_SHIFT;
+			frames[frame + 1] = unicodeFallbackLength;
+			frames[frame + 2] = currentFont;
+			frames[frame + 3] = fontSizeHalfPoints;
+			fontEntries[level] = fontEntry;
+			pictBuilders[level] = pictBuilder;
+		}
+
+		private void restore(int level) {
+			int frame = level * FRAME_SIZE;
+			int flags = frames[frame];
+			pendingIgnorableDestination = (flags & PENDING_IGNORABLE_DESTINATION) != 0;
+			htmlRtf = (flags & HTML_RTF) != 0;
+			hidden = (flags & HIDDEN) != 0;
+			ownsPictBuilder = (flags & OWNS_PICT_BUILDER) != 0;
+			bold = (flags & BOLD) != 0;
+			italic = (flags & ITALIC) != 0;
+			underline = (flags & UNDERLINE) != 0;
+			strike = (flags & STRIKE) != 0;
+			hasFont = (flags & HAS_FONT) != 0;
+			hasFontSize = (flags & HAS_FONT_SIZE) != 0;
+			destination = DESTINATIONS[flags >>> DESTINATION_SHIFT & 0xFF];
+			alignment = flags >>> ALIGNMENT_SHIFT;
+			unicodeFallbackLength = frames[frame + 1];
+			currentFont = frames[frame + 2];
+			fontSizeHalfPoints = frames[frame + 3];
+			fontEntry = fontEntries[level];
+			pictBuilder = pictBuilders[level];
+			fontEntries[level] = null;
+			pictBuilders[level] = null;
+		}
+
+		@Nullable
+		private String alignment() {
+			return ALIGNMENTS[alignment];
+		}
+
+		/**
+		 * Drops what the last conversion left behind, and stacks that a deeply nested document grew.
+		 */
+		private void clear() {
+			if (fontEntries.length > MAX_RETAINED_DEPTH) {
+				frames = new int[INITIAL_DEPTH * FRAME_SIZE];
+				fontEntries = new FontEntry[INITIAL_DEPTH];
+				pictBuilders = new PictBuilder[INITIAL_DEPTH];
+			} else {
+				Arrays.fill(fontEntries, 0, Math.min(depth, fontEntries.length), null);
+				Arrays.fill(pictBuilders, 0, Math.min(depth, pictBuilders.length), null);
+			}
+			depth = 0;
+			reset();
+		}
+
+		private static int flag(boolean value, int flag) {
+			return value ? flag : 0;
 		}
 	}
 
@@ -602,46 +1300,250 @@ public final class RtfToHtmlEngine {
 		private final StringBuilder name = new StringBuilder();
 	}
 
+	/**
+	 * Collects a picture's metadata and payload. Over retained input the payload is only located: the hex text and
+	 * {@code \binN} ranges are recorded, and decoded once the image handler asks for the bytes. Payload that cannot be
+	 * located in the input, such as {@code \'hh} escapes, decodes everything up to it and continues eagerly.
+	 * <p>
+	 * Decoded bytes beyond the {@linkplain RtfToHtmlOptions#getImageSpillThreshold() spill threshold} are moved to a
+	 * temporary file, in chunks, so that no more than the threshold is held in memory. A located payload that may
+	 * exceed the threshold is decoded into the file before it is handed to the image handler.
+	 */
 	private static final class PictBuilder {
+		private static final int HEX_TEXT = 0;
+		private static final int BINARY = 1;
+		// per segment: kind, start offset, end offset
+		private static final int SEGMENT_SIZE = 3;
+		private static final int SPILL_CHUNK = 64 * 1024;
+
+		private final RtfInput source;
+		private final long spillThreshold;
+		private final List<PictBuilder> spilledPictures;
+		private int[] segments = new int[8 * SEGMENT_SIZE];
+		private int segmentCount;
+		/**
+		 * Upper bound of the decoded size of the located payload.
+		 */
+		private long locatedSize;
+		private HexByteBuffer bytes;
+		private Path spillFile;
+		private FileChannel spillChannel;
 		private String format;
-		private final StringBuilder hex = new StringBuilder();
 		private Integer widthPixels;
 		private Integer heightPixels;
 		private Integer widthGoalTwips;
 		private Integer heightGoalTwips;
 
-		private void append(@NotNull byte[] bytes) {
-			for (byte b : bytes) {
-				hex.append(String.format("%02x", b & 0xff));
+		/**
+		 * @param spilledPictures where the builder registers itself once it creates a temporary file, so that the file
+		 * is deleted even if the picture never completes.
+		 */
+		private PictBuilder(@Nullable RtfInput source, long spillThreshold, @NotNull List<PictBuilder> spilledPictures) {
+			this.source = source;
+			this.spillThreshold = spillThreshold;
+			this.spilledPictures = spilledPictures;
+		}
+
+		/**
+		 * Appends decoded {@code \'hh} bytes, which are not located in the input.
+		 */
+		private void append(@NotNull ByteBuffer raw) {
+			materialize();
+			decodeBinary(raw);
+		}
+
+		private void appendBinary(@NotNull ByteBuffer raw, int sourceEnd) {
+			if (isDeferred() && sourceEnd >= 0) {
+				locatedSize += raw.remaining();
+				addSegment(BINARY, sourceEnd - raw.remaining(), sourceEnd);
+			} else {
+				materialize();
+				decodeBinary(raw);
 			}
 		}
 
-		private void appendHexText(@NotNull String text) {
-			for (int i = 0; i < text.length(); i++) {
-				char c = text.charAt(i);
-				if (c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F') {
-					hex.append(c);
-				}
+		private void appendHexText(@NotNull CharSequence text, int sourceEnd) {
+			if (isDeferred() && sourceEnd >= 0) {
+				locatedSize += (text.length() + 1) / 2;
+				addSegment(HEX_TEXT, sourceEnd - text.length(), sourceEnd);
+			} else {
+				materialize();
+				decodeHex(text);
 			}
 		}
 
 		private RtfImage toImage() {
-			String evenHex = hex.length() % 2 == 0 ? hex.toString() : hex.substring(0, hex.length() - 1);
-			byte[] bytes = evenHex.isEmpty() ? new byte[0] : hexStringToByteArray(evenHex);
-			return new RtfImage(format, bytes, widthPixels, heightPixels, widthGoalTwips, heightGoalTwips);
+			if (isDeferred() && locatedSize <= spillThreshold) {
+				return new RtfImage(format, () -> {
+					materialize();
+					return bytes.view();
+				}, widthPixels, heightPixels, widthGoalTwips, heightGoalTwips);
+			}
+			materialize();
+			if (spillChannel == null) {
+				return new RtfImage(format, bytes.view(), widthPixels, heightPixels, widthGoalTwips, heightGoalTwips);
+			}
+			try {
+				bytes.drainTo(spillChannel);
+				spillChannel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not write picture payload to " + spillFile + ".", e);
+			}
+			return new RtfImage(format, spillFile, widthPixels, heightPixels, widthGoalTwips, heightGoalTwips);
+		}
+
+		/**
+		 * Deletes the temporary file, if any. Never throws: a file that cannot be deleted now is deleted on exit.
+		 */
+		private void release() {
+			if (spillFile == null) {
+				return;
+			}
+			try {
+				spillChannel.close();
+				Files.deleteIfExists(spillFile);
+			} catch (IOException e) {
+				spillFile.toFile().deleteOnExit();
+			}
+			spillFile = null;
+		}
+
+		private boolean isDeferred() {
+			return source != null && bytes == null;
+		}
+
+		/**
+		 * Hex text broken only by line breaks, as Word wraps it, extends the previous segment.
+		 */
+		private void addSegment(int kind, int startOffset, int endOffset) {
+			int last = (segmentCount - 1) * SEGMENT_SIZE;
+			if (kind == HEX_TEXT && segmentCount > 0 && segments[last] == HEX_TEXT && isLineBreaks(segments[last + 2], startOffset)) {
+				segments[last + 2] = endOffset;
+				return;
+			}
+			if ((segmentCount + 1) * SEGMENT_SIZE > segments.length) {
+				segments = Arrays.copyOf(segments, 2 * segments.length);
+			}
+			int segment = segmentCount++ * SEGMENT_SIZE;
+			segments[segment] = kind;
+			segments[segment + 1] = startOffset;
+			segments[segment + 2] = endOffset;
+		}
+
+		private boolean isLineBreaks(int startOffset, int endOffset) {
+			for (int i = startOffset; i < endOffset; i++) {
+				int c = source.read(i);
+				if (c != '\r' && c != '\n') {
+					return false;
+				}
+			}
+			return startOffset <= endOffset;
+		}
+
+		/**
+		 * Decodes the recorded segments, once; from then on payload is decoded as it is appended.
+		 */
+		private void materialize() {
+			if (bytes != null) {
+				return;
+			}
+			bytes = new HexByteBuffer();
+			for (int i = 0; i < segmentCount * SEGMENT_SIZE; i += SEGMENT_SIZE) {
+				if (segments[i] == HEX_TEXT) {
+					decodeHex(source.textView(segments[i + 1], segments[i + 2]));
+				} else {
+					decodeBinary(source.byteView(segments[i + 1], segments[i + 2]));
+				}
+			}
+			segments = null;
+		}
+
+		private void decodeHex(@NotNull CharSequence text) {
+			int length = text.length();
+			if (bytes.size() + (length + 1) / 2 <= spillLimit()) {
+				bytes.appendHexDigits(text);
+				return;
+			}
+			for (int start = 0; start < length; start += 2 * SPILL_CHUNK) {
+				bytes.appendHexDigits(text.subSequence(start, Math.min(length, start + 2 * SPILL_CHUNK)));
+				spillIfFull();
+			}
+		}
+
+		private void decodeBinary(@NotNull ByteBuffer raw) {
+			if (bytes.size() + raw.remaining() <= spillLimit()) {
+				bytes.append(raw);
+				return;
+			}
+			ByteBuffer chunk = raw.duplicate();
+			for (int start = raw.position(); start < raw.limit(); start += SPILL_CHUNK) {
+				chunk.limit(Math.min(raw.limit(), start + SPILL_CHUNK));
+				chunk.position(start);
+				bytes.append(chunk);
+				spillIfFull();
+			}
+		}
+
+		/**
+		 * @return how many decoded bytes may be held before they are moved to the temporary file.
+		 */
+		private long spillLimit() {
+			return spillChannel == null ? spillThreshold : SPILL_CHUNK;
+		}
+
+		private void spillIfFull() {
+			if (bytes.size() <= spillLimit()) {
+				return;
+			}
+			try {
+				if (spillChannel == null) {
+					spillFile = Files.createTempFile("rtf-pict-", ".tmp");
+					spilledPictures.add(this);
+					spillChannel = FileChannel.open(spillFile, StandardOpenOption.WRITE);
+				}
+				bytes.drainTo(spillChannel);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not write picture payload to a temporary file.", e);
+			}
 		}
 	}
 
+	/**
+	 * Writes generic-mode HTML straight into the body buffer. The character formatting tags of the last text run are
+	 * left open, and only the ones whose formatting changes are closed and reopened, so consecutive runs with the same
+	 * formatting share one set of tags.
+	 * <p>
+	 * With {@link RtfToHtmlOptions#isCssClasses() CSS classes}, each distinct character style or alignment is written
+	 * to the stylesheet once, keyed by its packed formatting fields, and referred to by class name.
+	 */
 	private final class GenericHtmlBuilder {
-		private final StringBuilder body = new StringBuilder();
-		private boolean paragraphOpen;
+		private static final long ALIGNMENT_KEY = 1L << 3;
 
-		private void appendText(@NotNull String text, @NotNull State state) {
-			if (text.isEmpty()) {
+		private final StringBuilder body;
+		private final StringBuilder stylesheet;
+		private final Map<Long, String> classNames;
+		private boolean paragraphOpen;
+		private boolean italicOpen;
+		private boolean boldOpen;
+		private boolean spanOpen;
+		private boolean spanUnderline;
+		private boolean spanStrike;
+		private boolean spanHasFontSize;
+		private int spanFontSizeHalfPoints;
+
+		private GenericHtmlBuilder(@NotNull StringBuilder body, @NotNull StringBuilder stylesheet, @NotNull Map<Long, String> classNames) {
+			this.body = body;
+			this.stylesheet = stylesheet;
+			this.classNames = classNames;
+		}
+
+		private void appendText(@NotNull CharSequence text, @NotNull State state) {
+			if (text.length() == 0) {
 				return;
 			}
 			ensureParagraph(state);
-			body.append(applyCharacterFormatting(escapeHtml(text), state));
+			applyCharacterFormatting(state);
+			appendEscaped(text, body);
 		}
 
 		private void appendBreak(@NotNull State state) {
@@ -651,6 +1553,7 @@ public final class RtfToHtmlEngine {
 
 		private void appendImage(@NotNull String src, @NotNull RtfImage image, @NotNull State state) {
 			ensureParagraph(state);
+			closeCharacterFormatting();
 			body.append("<img src=\"").append(escapeAttribute(src)).append("\"");
 			if (image.getWidthPixels() != null) {
 				body.append(" width=\"").append(image.getWidthPixels()).append("\"");
@@ -663,6 +1566,7 @@ public final class RtfToHtmlEngine {
 
 		private void closeParagraph() {
 			if (paragraphOpen) {
+				closeCharacterFormatting();
 				body.append("</p>");
 				paragraphOpen = false;
 			} else {
@@ -670,11 +1574,10 @@ public final class RtfToHtmlEngine {
 			}
 		}
 
-		private String result() {
+		private void closeOpenParagraph() {
 			if (paragraphOpen) {
 				closeParagraph();
 			}
-			return "<html><body>" + body + "</body></html>";
 		}
 
 		private void ensureParagraph(@NotNull State state) {
@@ -682,54 +1585,145 @@ public final class RtfToHtmlEngine {
 				return;
 			}
 			body.append("<p");
-			if (state.alignment != null) {
-				body.append(" style=\"text-align:").append(state.alignment).append("\"");
+			if (state.alignment() != null) {
+				if (options.isCssClasses()) {
+					body.append(" class=\"").append(className(ALIGNMENT_KEY | (long) state.alignment << 4, state)).append("\"");
+				} else {
+					body.append(" style=\"");
+					appendAlignment(body, state);
+					body.append("\"");
+				}
 			}
 			body.append(">");
 			paragraphOpen = true;
 		}
 
-		private String applyCharacterFormatting(@NotNull String escapedText, @NotNull State state) {
-			String formatted = escapedText;
-			String style = characterStyle(state);
-			if (!style.isEmpty()) {
-				formatted = "<span style=\"" + style + "\">" + formatted + "</span>";
+		/**
+		 * Makes the open tags match the state. They nest as {@code <em><strong><span>}, so a change closes the tag
+		 * that changed along with the ones inside it.
+		 */
+		private void applyCharacterFormatting(@NotNull State state) {
+			boolean span = hasCharacterStyle(state);
+			if (italicOpen != state.italic) {
+				closeCharacterFormatting();
+			} else if (boldOpen != state.bold) {
+				closeSpan();
+				closeBold();
+			} else if (spanOpen && (!span || !isOpenCharacterStyle(state))) {
+				closeSpan();
+			}
+			if (state.italic && !italicOpen) {
+				body.append("<em>");
+				italicOpen = true;
+			}
+			if (state.bold && !boldOpen) {
+				body.append("<strong>");
+				boldOpen = true;
+			}
+			if (span && !spanOpen) {
+				openSpan(state);
+			}
+		}
+
+		private void closeCharacterFormatting() {
+			closeSpan();
+			closeBold();
+			if (italicOpen) {
+				body.append("</em>");
+				italicOpen = false;
 			}
-			if (state.bold) {
-				formatted = "<strong>" + formatted + "</strong>";
+		}
+
+		private void closeBold() {
+			if (boldOpen) {
+				body.append("</strong>");
+				boldOpen = false;
 			}
-			if (state.italic) {
-				formatted = "<em>" + formatted + "</em>";
+		}
+
+		private void closeSpan() {
+			if (spanOpen) {
+				body.append("</span>");
+				spanOpen = false;
 			}
-			return formatted;
 		}
 
-		private String characterStyle(@NotNull State state) {
-			StringBuilder style = new StringBuilder();
+		private boolean hasCharacterStyle(@NotNull State state) {
+			return state.underline || state.strike || state.hasFontSize;
+		}
+
+		private boolean isOpenCharacterStyle(@NotNull State state) {
+			return spanUnderline == state.underline
+					&& spanStrike == state.strike
+					&& spanHasFontSize == state.hasFontSize
+					&& (!state.hasFontSize || spanFontSizeHalfPoints == state.fontSizeHalfPoints);
+		}
+
+		private void openSpan(@NotNull State state) {
+			if (options.isCssClasses()) {
+				body.append("<span class=\"").append(className(characterStyleKey(state), state)).append("\">");
+			} else {
+				body.append("<span style=\"");
+				appendCharacterStyle(body, state);
+				body.append("\">");
+			}
+			spanOpen = true;
+			spanUnderline = state.underline;
+			spanStrike = state.strike;
+			spanHasFontSize = state.hasFontSize;
+			spanFontSizeHalfPoints = state.fontSizeHalfPoints;
+		}
+
+		/**
+		 * Interns the style of a key, computing its CSS only the first time the key is seen in the document.
+		 */
+		@NotNull
+		private String className(long key, @NotNull State state) {
+			String className = classNames.get(key);
+			if (className == null) {
+				className = "c" + classNames.size();
+				classNames.put(key, className);
+				stylesheet.append('.').append(className).append('{');
+				if ((key & ALIGNMENT_KEY) != 0) {
+					appendAlignment(stylesheet, state);
+				} else {
+					appendCharacterStyle(stylesheet, state);
+				}
+				stylesheet.append('}');
+			}
+			return className;
+		}
+
+		private long characterStyleKey(@NotNull State state) {
+			long flags = (state.underline ? 1 : 0) | (state.strike ? 2 : 0) | (state.hasFontSize ? 4 : 0);
+			return state.hasFontSize ? (long) state.fontSizeHalfPoints << 32 | flags : flags;
+		}
+
+		private void appendAlignment(@NotNull StringBuilder css, @NotNull State state) {
+			css.append("text-align:").append(state.alignment());
+		}
+
+		private void appendCharacterStyle(@NotNull StringBuilder css, @NotNull State state) {
 			if (state.underline || state.strike) {
-				style.append("text-decoration:");
+				css.append("text-decoration:");
 				if (state.underline) {
-					style.append("underline");
+					css.append("underline");
 				}
 				if (state.underline && state.strike) {
-					style.append(' ');
+					css.append(' ');
 				}
 				if (state.strike) {
-					style.append("line-through");
+					css.append("line-through");
 				}
-				style.append(';');
+				css.append(';');
 			}
-			if (state.fontSizeHalfPoints != null) {
-				style.append("font-size:").append(formatHalfPoints(state.fontSizeHalfPoints)).append("pt;");
-			}
-			return style.toString();
-		}
-
-		private String formatHalfPoints(int halfPoints) {
-			if (halfPoints % 2 == 0) {
-				return Integer.toString(halfPoints / 2);
+			if (state.hasFontSize) {
+				css.append("font-size:").append(state.fontSizeHalfPoints / 2);
+				if (state.fontSizeHalfPoints % 2 != 0) {
+					css.append(".5");
+				}
+				css.append("pt;");
 			}
-			return (halfPoints / 2) + ".5";
 		}
 	}
 }
@@ -0,0 +1,431 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.bbottema.rtftohtml.RtfEventHandler;
+import org.bbottema.rtftohtml.RtfTokenType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pull tokenizer over an {@link RtfInput}.
+ * <p>
+ * Each call to {@link #next()} advances over exactly one token and exposes its offsets. Token payloads such as text
+ * and bytes are only decoded when asked for, so callers that only look at structure never allocate them.
+ */
+public final class RtfTokenizer {
+
+	private final RtfInput input;
+	private final ControlWordTable controlWords = new ControlWordTable();
+	private int limit;
+	private int index;
+
+	private RtfTokenType token;
+	private int startIndex;
+	private int endIndex;
+	private int wordStart;
+	private int wordEnd;
+	private int wordSlot = -1;
+	private boolean hasParameter;
+	private int parameter;
+	private char symbol;
+	private int payloadStart;
+	private HexByteBuffer hexBuffer;
+	private Set<String> skippedDestinations;
+	private int skippedGroupEnd;
+
+	public RtfTokenizer(@NotNull RtfInput input) {
+		this(input, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Tokenizes only the range {@code [startIndex, endIndex)}, reporting offsets relative to the whole input. Both ends
+	 * must lie on token boundaries, as found by {@link RtfSegmenter}.
+	 */
+	public RtfTokenizer(@NotNull RtfInput input, int startIndex, int endIndex) {
+		this.input = requireNonNull(input, "input");
+		this.index = startIndex;
+		this.limit = endIndex;
+	}
+
+	/**
+	 * Continues tokenizing at another range of the same input, e.g. to jump over a group whose end is already known.
+	 */
+	public void reposition(int startIndex, int endIndex) {
+		this.index = startIndex;
+		this.limit = endIndex;
+	}
+
+	/**
+	 * Makes {@link #emit(RtfEventHandler)} fast-forward over groups whose destination, the first control word after
+	 * the brace and an optional {@code \*}, is in the set. Only an {@link RtfViewHandler} is told about them, through
+	 * {@link RtfViewHandler#onSkippedGroup(String, int, int)}; other handlers see every token.
+	 */
+	public void skipDestinations(@NotNull Set<String> destinations) {
+		this.skippedDestinations = destinations.isEmpty() ? null : destinations;
+	}
+
+	@NotNull
+	public RtfTokenType next() {
+		int c = readBeforeLimit(index);
+		while (c == '\0' || c == '\r' || c == '\n') {
+			c = readBeforeLimit(++index);
+		}
+
+		startIndex = index;
+		if (c == -1) {
+			token = RtfTokenType.END_OF_INPUT;
+		} else if (c == '{') {
+			token = RtfTokenType.GROUP_START;
+			index++;
+		} else if (c == '}') {
+			token = RtfTokenType.GROUP_END;
+			index++;
+		} else if (c == '\\') {
+			if (isHexEscape(index)) {
+				token = RtfTokenType.HEX_BYTES;
+				index = readHexRunEnd(index);
+			} else {
+				readControl(index);
+			}
+		} else {
+			token = RtfTokenType.TEXT;
+			index = readTextEnd(index);
+		}
+		endIndex = index;
+		return token;
+	}
+
+	/**
+	 * Drives the handler over all remaining tokens. Unbalanced closing braces are dropped here, so handlers can rely on
+	 * every {@link RtfEventHandler#onGroupEnd(int)} matching an earlier {@link RtfEventHandler#onGroupStart(int)}.
+	 * Each token is {@link RtfInput#release(int) released} once the handler has seen it. An {@link RtfViewHandler}
+	 * receives text and binary payloads as views instead of copies.
+	 */
+	public void emit(@NotNull RtfEventHandler handler) {
+		emit(handler, 0);
+	}
+
+	/**
+	 * Like {@link #emit(RtfEventHandler)}, for a range that starts inside {@code openGroups} groups: closing braces for
+	 * those groups are reported instead of dropped.
+	 */
+	public void emit(@NotNull RtfEventHandler handler, int openGroups) {
+		requireNonNull(handler, "handler");
+		RtfViewHandler viewHandler = handler instanceof RtfViewHandler ? (RtfViewHandler) handler : null;
+		int depth = openGroups;
+		RtfTokenType token;
+		while ((token = next()) != RtfTokenType.END_OF_INPUT) {
+			switch (token) {
+				case GROUP_START:
+					if (viewHandler != null && skippedDestinations != null) {
+						String destination = skipDestination();
+						if (destination != null) {
+							viewHandler.onSkippedGroup(destination, startIndex, skippedGroupEnd);
+							break;
+						}
+					}
+					depth++;
+					handler.onGroupStart(startIndex);
+					break;
+				case GROUP_END:
+					if (depth > 0) {
+						depth--;
+						handler.onGroupEnd(endIndex);
+					}
+					break;
+				case CONTROL_WORD:
+					handler.onControlWord(getControlWord(), getControlWordCode(), hasParameter, parameter, startIndex, endIndex);
+					break;
+				case CONTROL_SYMBOL:
+					handler.onControlSymbol(symbol, startIndex, endIndex);
+					break;
+				case HEX_BYTES:
+					if (viewHandler != null) {
+						viewHandler.onHexBytesView(getHexBytesView(), startIndex, endIndex);
+					} else {
+						handler.onHexBytes(getBytes(), startIndex, endIndex);
+					}
+					break;
+				case BINARY:
+					if (viewHandler != null) {
+						viewHandler.onBinaryView(getBinaryView(), startIndex, endIndex);
+					} else {
+						handler.onBinary(getBytes(), startIndex, endIndex);
+					}
+					break;
+				default:
+					if (viewHandler != null) {
+						viewHandler.onTextView(getTextView(), startIndex, endIndex);
+					} else {
+						handler.onText(getText(), startIndex, endIndex);
+					}
+			}
+			input.release(endIndex);
+		}
+		handler.onDocumentEnd(startIndex);
+	}
+
+	@NotNull
+	public RtfTokenType getToken() {
+		return token;
+	}
+
+	public int getStartIndex() {
+		return startIndex;
+	}
+
+	public int getEndIndex() {
+		return endIndex;
+	}
+
+	/**
+	 * @return the canonical name of the current control word; known words and words seen before in this document are
+	 * not allocated again.
+	 */
+	@NotNull
+	public String getControlWord() {
+		return controlWords.name(resolveControlWord());
+	}
+
+	/**
+	 * @return the {@link org.bbottema.rtftohtml.model.RtfControlWords} code of the current control word.
+	 */
+	public int getControlWordCode() {
+		return controlWords.code(resolveControlWord());
+	}
+
+	/**
+	 * Compares the current control word against {@code word} in place, without allocating its name.
+	 */
+	public boolean isControlWord(@NotNull String word) {
+		if (token != RtfTokenType.CONTROL_WORD || wordEnd - wordStart != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (input.read(wordStart + i) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean hasParameter() {
+		return hasParameter;
+	}
+
+	public int getParameter() {
+		return parameter;
+	}
+
+	public char getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return the offset of the first payload byte of the current {@link RtfTokenType#BINARY} token.
+	 */
+	public int getPayloadStartIndex() {
+		return payloadStart;
+	}
+
+	@NotNull
+	public String getText() {
+		return input.text(startIndex, endIndex);
+	}
+
+	/**
+	 * @return the current text token as a view into the input; see {@link RtfInput#textView(int, int)}.
+	 */
+	@NotNull
+	public CharSequence getTextView() {
+		return input.textView(startIndex, endIndex);
+	}
+
+	/**
+	 * @return the payload of the current {@link RtfTokenType#BINARY} token as a view into the input where possible.
+	 */
+	@NotNull
+	public ByteBuffer getBinaryView() {
+		return input.byteView(payloadStart, endIndex);
+	}
+
+	/**
+	 * @return the decoded bytes of the current {@link RtfTokenType#HEX_BYTES} or {@link RtfTokenType#BINARY} token.
+	 */
+	@NotNull
+	public byte[] getBytes() {
+		if (token == RtfTokenType.BINARY) {
+			return input.bytes(payloadStart, endIndex);
+		}
+		byte[] bytes = new byte[(endIndex - startIndex) / 4];
+		HexByteBuffer.decodeEscapes(input, startIndex, endIndex, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * @return the decoded bytes of the current {@link RtfTokenType#HEX_BYTES} token in a buffer that is reused for the
+	 * next hex run.
+	 */
+	@NotNull
+	public ByteBuffer getHexBytesView() {
+		if (hexBuffer == null) {
+			hexBuffer = new HexByteBuffer();
+		}
+		hexBuffer.clear();
+		hexBuffer.appendEscapes(input, startIndex, endIndex);
+		return hexBuffer.view();
+	}
+
+	private int readTextEnd(int index) {
+		int cursor = index;
+		int c = input.read(cursor);
+		while (c != -1 && c != '\0' && c != '\r' && c != '\n' && c != '{' && c != '}' && c != '\\') {
+			c = input.read(++cursor);
+		}
+		return cursor;
+	}
+
+	private boolean isHexEscape(int index) {
+		return input.read(index) == '\\'
+				&& input.read(index + 1) == '\''
+				&& isHexDigit(input.read(index + 2))
+				&& isHexDigit(input.read(index + 3));
+	}
+
+	private int readHexRunEnd(int index) {
+		int cursor = index;
+		while (isHexEscape(cursor)) {
+			cursor += 4;
+		}
+		return cursor;
+	}
+
+	/**
+	 * Right after a {@link RtfTokenType#GROUP_START}, checks the group's destination against
+	 * {@link #skipDestinations(Set) the skip set} and, if it matches, moves past the whole group by brace counting.
+	 *
+	 * @return the skipped destination, or {@code null} if the group is not skipped.
+	 */
+	@Nullable
+	public String skipDestination() {
+		if (skippedDestinations == null) {
+			return null;
+		}
+		int cursor = skipIgnoredCharacters(index);
+		if (input.read(cursor) == '\\' && input.read(cursor + 1) == '*') {
+			cursor = skipIgnoredCharacters(cursor + 2);
+		}
+		if (input.read(cursor) != '\\' || !isAsciiLetter(input.read(cursor + 1))) {
+			return null;
+		}
+		int destinationEnd = cursor + 1;
+		while (isAsciiLetter(input.read(destinationEnd))) {
+			destinationEnd++;
+		}
+		String destination = controlWords.name(controlWords.resolve(input, cursor + 1, destinationEnd));
+		if (!skippedDestinations.contains(destination)) {
+			return null;
+		}
+
+		int groupEnd = RtfSegmenter.findGroupEnd(input, cursor);
+		skippedGroupEnd = groupEnd < 0 ? -1 : groupEnd;
+		index = groupEnd < 0 ? ~groupEnd : groupEnd;
+		endIndex = index;
+		return destination;
+	}
+
+	private int skipIgnoredCharacters(int index) {
+		int c = input.read(index);
+		while (c == '\0' || c == '\r' || c == '\n') {
+			c = input.read(++index);
+		}
+		return index;
+	}
+
+	private int readBeforeLimit(int index) {
+		return index < limit ? input.read(index) : -1;
+	}
+
+	private void readControl(int slashIndex) {
+		int cursor = slashIndex + 1;
+		int first = input.read(cursor);
+		if (first == -1) {
+			controlSymbol('\\', cursor);
+			return;
+		}
+		if (!isAsciiLetter(first)) {
+			controlSymbol((char) first, cursor + 1);
+			return;
+		}
+
+		wordStart = cursor;
+		wordSlot = -1;
+		while (isAsciiLetter(input.read(cursor))) {
+			cursor++;
+		}
+		wordEnd = cursor;
+
+		int sign = 1;
+		if (input.read(cursor) == '-') {
+			sign = -1;
+			cursor++;
+		}
+
+		hasParameter = false;
+		int value = 0;
+		int c = input.read(cursor);
+		while (c >= '0' && c <= '9') {
+			hasParameter = true;
+			value = value * 10 + (c - '0');
+			c = input.read(++cursor);
+		}
+		parameter = hasParameter ? sign * value : 0;
+
+		if (c == ' ') {
+			cursor++;
+		}
+
+		if (hasParameter && isBinControlWord()) {
+			token = RtfTokenType.BINARY;
+			payloadStart = cursor;
+			index = input.skip(cursor, Math.max(0, parameter));
+		} else {
+			token = RtfTokenType.CONTROL_WORD;
+			index = cursor;
+		}
+	}
+
+	private int resolveControlWord() {
+		if (wordSlot == -1) {
+			wordSlot = controlWords.resolve(input, wordStart, wordEnd);
+		}
+		return wordSlot;
+	}
+
+	private void controlSymbol(char symbol, int nextIndex) {
+		this.token = RtfTokenType.CONTROL_SYMBOL;
+		this.symbol = symbol;
+		this.index = nextIndex;
+	}
+
+	private boolean isBinControlWord() {
+		return wordEnd - wordStart == 3
+				&& input.read(wordStart) == 'b'
+				&& input.read(wordStart + 1) == 'i'
+				&& input.read(wordStart + 2) == 'n';
+	}
+
+	private static boolean isAsciiLetter(int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isHexDigit(int c) {
+		return c >= '0' && c <= '9'
+				|| c >= 'a' && c <= 'f'
+				|| c >= 'A' && c <= 'F';
+	}
+}
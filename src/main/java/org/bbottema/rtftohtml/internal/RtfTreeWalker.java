@@ -0,0 +1,71 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.bbottema.rtftohtml.model.RtfBinary;
+import org.bbottema.rtftohtml.model.RtfControlSymbol;
+import org.bbottema.rtftohtml.model.RtfControlWord;
+import org.bbottema.rtftohtml.model.RtfGroup;
+import org.bbottema.rtftohtml.model.RtfHexBytes;
+import org.bbottema.rtftohtml.model.RtfNode;
+import org.bbottema.rtftohtml.model.RtfPosition;
+import org.bbottema.rtftohtml.model.RtfSkippedGroup;
+import org.bbottema.rtftohtml.model.RtfText;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Feeds a parsed tree to an {@link RtfViewHandler} as the events the tokenizer would have produced for it. Open groups
+ * are kept on a heap-allocated stack rather than the call stack, so nesting depth is bounded by memory only and a
+ * document with a hundred thousand nested groups cannot overflow the calling thread's stack.
+ */
+public final class RtfTreeWalker {
+
+	private RtfTreeWalker() {
+	}
+
+	/**
+	 * Emits the children of {@code root}, but not the root group itself. Groups that were never closed get no
+	 * {@link RtfViewHandler#onGroupEnd(int) group end}, as with token input.
+	 */
+	public static void walk(@NotNull RtfGroup root, @NotNull RtfViewHandler handler) {
+		LinkedList<RtfGroup> openGroups = new LinkedList<>();
+		LinkedList<Iterator<RtfNode>> openChildren = new LinkedList<>();
+		openGroups.addFirst(root);
+		openChildren.addFirst(root.getChildren().iterator());
+		while (!openChildren.isEmpty()) {
+			Iterator<RtfNode> children = openChildren.getFirst();
+			if (!children.hasNext()) {
+				openChildren.removeFirst();
+				RtfGroup group = openGroups.removeFirst();
+				int endOffset = group.getPosition().getEndOffset();
+				if (!openGroups.isEmpty() && endOffset != -1) {
+					handler.onGroupEnd(endOffset);
+				}
+				continue;
+			}
+			RtfNode node = children.next();
+			RtfPosition position = node.getPosition();
+			if (node instanceof RtfGroup) {
+				handler.onGroupStart(position.getStartOffset());
+				openGroups.addFirst((RtfGroup) node);
+				openChildren.addFirst(((RtfGroup) node).getChildren().iterator());
+			} else if (node instanceof RtfControlWord) {
+				RtfControlWord controlWord = (RtfControlWord) node;
+				Integer parameter = controlWord.getParameter();
+				handler.onControlWord(controlWord.getName(), controlWord.getCode(), parameter != null, parameter == null ? 0 : parameter,
+						position.getStartOffset(), position.getEndOffset());
+			} else if (node instanceof RtfControlSymbol) {
+				handler.onControlSymbol(((RtfControlSymbol) node).getSymbol(), position.getStartOffset(), position.getEndOffset());
+			} else if (node instanceof RtfHexBytes) {
+				handler.onHexBytesView(((RtfHexBytes) node).asByteBuffer(), position.getStartOffset(), position.getEndOffset());
+			} else if (node instanceof RtfBinary) {
+				handler.onBinaryView(((RtfBinary) node).asByteBuffer(), position.getStartOffset(), position.getEndOffset());
+			} else if (node instanceof RtfText) {
+				handler.onTextView(((RtfText) node).asCharSequence(), position.getStartOffset(), position.getEndOffset());
+			} else if (node instanceof RtfSkippedGroup) {
+				handler.onSkippedGroup(((RtfSkippedGroup) node).getDestination(), position.getStartOffset(), position.getEndOffset());
+			}
+		}
+	}
+}
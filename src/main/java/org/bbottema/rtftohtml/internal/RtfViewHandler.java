@@ -0,0 +1,29 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.bbottema.rtftohtml.RtfEventHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Event handler that takes text and byte payloads as views rather than as copies. Hex runs are decoded into a buffer
+ * that is reused for the next run, and for streamed input text and binary views point into the read window, so views
+ * are only guaranteed to be valid during the callback.
+ */
+public interface RtfViewHandler extends RtfEventHandler {
+
+	void onTextView(@NotNull CharSequence text, int startOffset, int endOffset);
+
+	void onHexBytesView(@NotNull ByteBuffer bytes, int startOffset, int endOffset);
+
+	void onBinaryView(@NotNull ByteBuffer bytes, int startOffset, int endOffset);
+
+	/**
+	 * Reports a group that was fast-forwarded because its destination is in
+	 * {@link RtfTokenizer#skipDestinations(Set) the skip set}, in place of all of its events.
+	 *
+	 * @param endOffset the offset after the closing brace, or {@code -1} if the group is never closed.
+	 */
+	void onSkippedGroup(@NotNull String destination, int startOffset, int endOffset);
+}
@@ -0,0 +1,150 @@
+package org.bbottema.rtftohtml.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes HTML to UTF-8 as it is appended, into an {@link OutputStream} through a small buffer or straight into a
+ * caller's {@link ByteBuffer}, so the output never exists as a {@code String}. Text can be HTML-escaped while it is
+ * encoded. The bytes are the same as {@code String.getBytes(UTF_8)} would give, including {@code ?} for unpaired
+ * surrogates.
+ */
+public final class Utf8HtmlWriter implements Appendable {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_BYTES_PER_CHAR = 5; // "&amp;"
+
+	private final OutputStream stream;
+	private final ByteBuffer target;
+	private char pendingHighSurrogate;
+
+	public Utf8HtmlWriter(@NotNull OutputStream stream) {
+		this.stream = requireNonNull(stream, "stream");
+		this.target = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes from the buffer's position on; a {@link java.nio.BufferOverflowException} is thrown once it is full.
+	 */
+	public Utf8HtmlWriter(@NotNull ByteBuffer target) {
+		this.stream = null;
+		this.target = requireNonNull(target, "target");
+	}
+
+	@NotNull
+	@Override
+	public Utf8HtmlWriter append(@Nullable CharSequence text) throws IOException {
+		CharSequence effectiveText = text == null ? "null" : text;
+		encode(effectiveText, 0, effectiveText.length(), false);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public Utf8HtmlWriter append(@Nullable CharSequence text, int start, int end) throws IOException {
+		encode(text == null ? "null" : text, start, end, false);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public Utf8HtmlWriter append(char c) throws IOException {
+		encode(c, false);
+		return this;
+	}
+
+	/**
+	 * Appends text with {@code &}, {@code <} and {@code >} replaced by their entities.
+	 */
+	@NotNull
+	public Utf8HtmlWriter appendEscaped(@NotNull CharSequence text) throws IOException {
+		encode(text, 0, text.length(), true);
+		return this;
+	}
+
+	/**
+	 * Completes a surrogate pair left open by the last append and writes buffered bytes to the stream.
+	 */
+	public void flush() {
+		try {
+			if (pendingHighSurrogate != 0) {
+				pendingHighSurrogate = 0;
+				write((byte) '?');
+			}
+			if (stream != null) {
+				drain();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write HTML output.", e);
+		}
+	}
+
+	private void encode(@NotNull CharSequence text, int start, int end, boolean escape) throws IOException {
+		for (int i = start; i < end; i++) {
+			encode(text.charAt(i), escape);
+		}
+	}
+
+	private void encode(char c, boolean escape) throws IOException {
+		if (stream != null && target.remaining() < MAX_BYTES_PER_CHAR) {
+			drain();
+		}
+		if (pendingHighSurrogate != 0) {
+			char highSurrogate = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(highSurrogate, c);
+				write((byte) (0xF0 | codePoint >> 18));
+				write((byte) (0x80 | codePoint >> 12 & 0x3F));
+				write((byte) (0x80 | codePoint >> 6 & 0x3F));
+				write((byte) (0x80 | codePoint & 0x3F));
+				return;
+			}
+			write((byte) '?');
+			encode(c, escape);
+		} else if (c < 0x80) {
+			if (escape && c == '&') {
+				writeAscii("&amp;");
+			} else if (escape && c == '<') {
+				writeAscii("&lt;");
+			} else if (escape && c == '>') {
+				writeAscii("&gt;");
+			} else {
+				write((byte) c);
+			}
+		} else if (c < 0x800) {
+			write((byte) (0xC0 | c >> 6));
+			write((byte) (0x80 | c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			pendingHighSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			write((byte) '?');
+		} else {
+			write((byte) (0xE0 | c >> 12));
+			write((byte) (0x80 | c >> 6 & 0x3F));
+			write((byte) (0x80 | c & 0x3F));
+		}
+	}
+
+	private void writeAscii(@NotNull String entity) {
+		for (int i = 0; i < entity.length(); i++) {
+			write((byte) entity.charAt(i));
+		}
+	}
+
+	private void write(byte value) {
+		target.put(value);
+	}
+
+	private void drain() throws IOException {
+		stream.write(target.array(), 0, target.position());
+		target.clear();
+	}
+}
@@ -2,23 +2,46 @@ package org.bbottema.rtftohtml.model;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import static java.util.Objects.requireNonNull;
 
 public final class RtfBinary implements RtfNode {
 
-	private final byte[] bytes;
+	private final ByteBuffer bytes;
 	private final RtfPosition position;
 
 	public RtfBinary(@NotNull byte[] bytes, @NotNull RtfPosition position) {
-		this.bytes = Arrays.copyOf(requireNonNull(bytes, "bytes"), bytes.length);
+		this(ByteBuffer.wrap(requireNonNull(bytes, "bytes").clone()), position);
+	}
+
+	private RtfBinary(@NotNull ByteBuffer bytes, @NotNull RtfPosition position) {
+		this.bytes = requireNonNull(bytes, "bytes").slice().asReadOnlyBuffer();
 		this.position = requireNonNull(position, "position");
 	}
 
+	/**
+	 * Creates a node backed by the remaining bytes of the buffer without copying them. The bytes must not change
+	 * afterwards.
+	 */
+	@NotNull
+	public static RtfBinary view(@NotNull ByteBuffer bytes, @NotNull RtfPosition position) {
+		return new RtfBinary(bytes, position);
+	}
+
 	@NotNull
 	public byte[] getBytes() {
-		return Arrays.copyOf(bytes, bytes.length);
+		byte[] copy = new byte[bytes.remaining()];
+		bytes.duplicate().get(copy);
+		return copy;
+	}
+
+	/**
+	 * @return a read-only view of the bytes, without copying them.
+	 */
+	@NotNull
+	public ByteBuffer asByteBuffer() {
+		return bytes.duplicate();
 	}
 
 	@NotNull
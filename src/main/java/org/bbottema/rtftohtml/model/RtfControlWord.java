@@ -8,11 +8,20 @@ import static java.util.Objects.requireNonNull;
 public final class RtfControlWord implements RtfNode {
 
 	private final String name;
+	private final int code;
 	private final Integer parameter;
 	private final RtfPosition position;
 
 	public RtfControlWord(@NotNull String name, @Nullable Integer parameter, @NotNull RtfPosition position) {
+		this(name, RtfControlWords.codeOf(requireNonNull(name, "name")), parameter, position);
+	}
+
+	/**
+	 * @param code the {@link RtfControlWords} code of {@code name}, for callers that already resolved it.
+	 */
+	public RtfControlWord(@NotNull String name, int code, @Nullable Integer parameter, @NotNull RtfPosition position) {
 		this.name = requireNonNull(name, "name");
+		this.code = code;
 		this.parameter = parameter;
 		this.position = requireNonNull(position, "position");
 	}
@@ -22,6 +31,13 @@ public final class RtfControlWord implements RtfNode {
 		return name;
 	}
 
+	/**
+	 * @return the {@link RtfControlWords} code of this word, or {@link RtfControlWords#UNKNOWN}.
+	 */
+	public int getCode() {
+		return code;
+	}
+
 	@Nullable
 	public Integer getParameter() {
 		return parameter;
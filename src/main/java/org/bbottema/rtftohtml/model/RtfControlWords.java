@@ -0,0 +1,218 @@
+package org.bbottema.rtftohtml.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stable integer codes for well-known RTF control words, as exposed by {@link RtfControlWord#getCode()}.
+ * <p>
+ * Codes let consumers dispatch on control words with a {@code switch} instead of comparing names. Words not listed
+ * here have code {@link #UNKNOWN}. Later versions may add words, but existing codes never change.
+ */
+public final class RtfControlWords {
+
+	public static final int UNKNOWN = -1;
+
+	// Document header
+	public static final int RTF = 0;
+	public static final int ANSI = 1;
+	public static final int MAC = 2;
+	public static final int PC = 3;
+	public static final int PCA = 4;
+	public static final int ANSICPG = 5;
+	public static final int DEFF = 6;
+	public static final int DEFLANG = 7;
+	public static final int DEFTAB = 8;
+	public static final int UC = 9;
+	public static final int FROMHTML = 10;
+	public static final int FROMTEXT = 11;
+	public static final int FBIDIS = 12;
+
+	// Destinations
+	public static final int FONTTBL = 13;
+	public static final int COLORTBL = 14;
+	public static final int STYLESHEET = 15;
+	public static final int INFO = 16;
+	public static final int GENERATOR = 17;
+	public static final int FORMAT_CONVERTER = 18;
+	public static final int LISTTABLE = 19;
+	public static final int LISTOVERRIDETABLE = 20;
+	public static final int REVTBL = 21;
+	public static final int XMLNSTBL = 22;
+	public static final int THEMEDATA = 23;
+	public static final int COLORSCHEMEMAPPING = 24;
+	public static final int DATASTORE = 25;
+	public static final int LATENTSTYLES = 26;
+	public static final int RSIDTBL = 27;
+	public static final int MMATH_PR = 28;
+	public static final int PICT = 29;
+	public static final int HTMLTAG = 30;
+	public static final int MHTMLTAG = 31;
+	public static final int PNTEXT = 32;
+	public static final int PN = 33;
+	public static final int LISTTEXT = 34;
+	public static final int BKMKSTART = 35;
+	public static final int BKMKEND = 36;
+	public static final int FIELD = 37;
+	public static final int FLDINST = 38;
+	public static final int FLDRSLT = 39;
+	public static final int OBJECT = 40;
+	public static final int NONSHPPICT = 41;
+	public static final int SHPPICT = 42;
+
+	// Font table
+	public static final int F = 43;
+	public static final int FCHARSET = 44;
+	public static final int CPG = 45;
+	public static final int FNIL = 46;
+	public static final int FROMAN = 47;
+	public static final int FSWISS = 48;
+	public static final int FMODERN = 49;
+	public static final int FSCRIPT = 50;
+	public static final int FDECOR = 51;
+	public static final int FTECH = 52;
+	public static final int FBIDI = 53;
+	public static final int FPRQ = 54;
+	public static final int PANOSE = 55;
+	public static final int FALT = 56;
+
+	// Color table
+	public static final int RED = 57;
+	public static final int GREEN = 58;
+	public static final int BLUE = 59;
+
+	// Pictures
+	public static final int PNGBLIP = 60;
+	public static final int JPEGBLIP = 61;
+	public static final int EMFBLIP = 62;
+	public static final int WMETAFILE = 63;
+	public static final int MACPICT = 64;
+	public static final int DIBITMAP = 65;
+	public static final int WBITMAP = 66;
+	public static final int PICW = 67;
+	public static final int PICH = 68;
+	public static final int PICWGOAL = 69;
+	public static final int PICHGOAL = 70;
+	public static final int PICSCALEX = 71;
+	public static final int PICSCALEY = 72;
+	public static final int BIN = 73;
+
+	// Outlook
+	public static final int HTMLRTF = 74;
+	public static final int HTMLBASE = 75;
+
+	// Character formatting
+	public static final int PLAIN = 76;
+	public static final int B = 77;
+	public static final int I = 78;
+	public static final int UL = 79;
+	public static final int ULNONE = 80;
+	public static final int ULD = 81;
+	public static final int ULDB = 82;
+	public static final int ULW = 83;
+	public static final int STRIKE = 84;
+	public static final int STRIKED = 85;
+	public static final int V = 86;
+	public static final int FS = 87;
+	public static final int CF = 88;
+	public static final int CB = 89;
+	public static final int HIGHLIGHT = 90;
+	public static final int SUPER = 91;
+	public static final int SUB = 92;
+	public static final int NOSUPERSUB = 93;
+	public static final int CAPS = 94;
+	public static final int SCAPS = 95;
+	public static final int LANG = 96;
+	public static final int LANGFE = 97;
+	public static final int LANGNP = 98;
+	public static final int EXPND = 99;
+	public static final int KERNING = 100;
+	public static final int CHARSCALEX = 101;
+	public static final int CS = 102;
+	public static final int U = 103;
+
+	// Paragraph formatting
+	public static final int PAR = 104;
+	public static final int PARD = 105;
+	public static final int LINE = 106;
+	public static final int TAB = 107;
+	public static final int PAGE = 108;
+	public static final int SECT = 109;
+	public static final int SECTD = 110;
+	public static final int QC = 111;
+	public static final int QR = 112;
+	public static final int QJ = 113;
+	public static final int QL = 114;
+	public static final int LI = 115;
+	public static final int RI = 116;
+	public static final int FI = 117;
+	public static final int SA = 118;
+	public static final int SB = 119;
+	public static final int SL = 120;
+	public static final int SLMULT = 121;
+	public static final int S = 122;
+	public static final int INTBL = 123;
+	public static final int TROWD = 124;
+	public static final int CELL = 125;
+	public static final int ROW = 126;
+	public static final int LTRPAR = 127;
+	public static final int RTLPAR = 128;
+	public static final int LTRCH = 129;
+	public static final int RTLCH = 130;
+
+	// Document view
+	public static final int VIEWKIND = 131;
+	public static final int VIEWSCALE = 132;
+	public static final int PAPERW = 133;
+	public static final int PAPERH = 134;
+	public static final int MARGL = 135;
+	public static final int MARGR = 136;
+	public static final int MARGT = 137;
+	public static final int MARGB = 138;
+
+	private static final String[] NAMES = {
+			"rtf", "ansi", "mac", "pc", "pca", "ansicpg", "deff", "deflang", "deftab", "uc", "fromhtml", "fromtext",
+			"fbidis", "fonttbl", "colortbl", "stylesheet", "info", "generator", "formatConverter", "listtable",
+			"listoverridetable", "revtbl", "xmlnstbl", "themedata", "colorschememapping", "datastore", "latentstyles",
+			"rsidtbl", "mmathPr", "pict", "htmltag", "mhtmltag", "pntext", "pn", "listtext", "bkmkstart", "bkmkend",
+			"field", "fldinst", "fldrslt", "object", "nonshppict", "shppict", "f", "fcharset", "cpg", "fnil",
+			"froman", "fswiss", "fmodern", "fscript", "fdecor", "ftech", "fbidi", "fprq", "panose", "falt", "red",
+			"green", "blue", "pngblip", "jpegblip", "emfblip", "wmetafile", "macpict", "dibitmap", "wbitmap", "picw",
+			"pich", "picwgoal", "pichgoal", "picscalex", "picscaley", "bin", "htmlrtf", "htmlbase", "plain", "b", "i",
+			"ul", "ulnone", "uld", "uldb", "ulw", "strike", "striked", "v", "fs", "cf", "cb", "highlight", "super",
+			"sub", "nosupersub", "caps", "scaps", "lang", "langfe", "langnp", "expnd", "kerning", "charscalex", "cs",
+			"u", "par", "pard", "line", "tab", "page", "sect", "sectd", "qc", "qr", "qj", "ql", "li", "ri", "fi",
+			"sa", "sb", "sl", "slmult", "s", "intbl", "trowd", "cell", "row", "ltrpar", "rtlpar", "ltrch", "rtlch",
+			"viewkind", "viewscale", "paperw", "paperh", "margl", "margr", "margt", "margb"
+	};
+
+	private static final Map<String, Integer> CODES = new HashMap<>();
+
+	static {
+		for (int code = 0; code < NAMES.length; code++) {
+			CODES.put(NAMES[code], code);
+		}
+	}
+
+	private RtfControlWords() {
+	}
+
+	/**
+	 * @return the code of the given control word name, or {@link #UNKNOWN}.
+	 */
+	public static int codeOf(@NotNull String name) {
+		Integer code = CODES.get(name);
+		return code == null ? UNKNOWN : code;
+	}
+
+	/**
+	 * @return the control word name for a code, or {@code null} if the code is not a known control word.
+	 */
+	@Nullable
+	public static String nameOf(int code) {
+		return code >= 0 && code < NAMES.length ? NAMES[code] : null;
+	}
+}
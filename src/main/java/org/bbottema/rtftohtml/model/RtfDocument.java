@@ -1,18 +1,39 @@
 package org.bbottema.rtftohtml.model;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static java.util.Objects.requireNonNull;
 
 public final class RtfDocument {
 
 	private final RtfGroup root;
-	private final String source;
+	private final CharSequence source;
+	private final RtfHeader header;
 	private final boolean bytePreservingInput;
 
 	public RtfDocument(@NotNull RtfGroup root, @NotNull String source, boolean bytePreservingInput) {
+		this(root, (CharSequence) source, bytePreservingInput);
+	}
+
+	/**
+	 * @param source the original RTF; byte input is passed as an ISO-8859-1 view so it is not widened up front.
+	 */
+	public RtfDocument(@NotNull RtfGroup root, @NotNull CharSequence source, boolean bytePreservingInput) {
 		this.root = requireNonNull(root, "root");
 		this.source = requireNonNull(source, "source");
+		this.header = null;
+		this.bytePreservingInput = bytePreservingInput;
+	}
+
+	/**
+	 * Creates a document that does not retain its source; the header is captured instead, so mode detection does not
+	 * need the source.
+	 */
+	public RtfDocument(@NotNull RtfGroup root, @NotNull RtfHeader header, boolean bytePreservingInput) {
+		this.root = requireNonNull(root, "root");
+		this.source = null;
+		this.header = requireNonNull(header, "header");
 		this.bytePreservingInput = bytePreservingInput;
 	}
 
@@ -21,9 +42,29 @@ public final class RtfDocument {
 		return root;
 	}
 
+	/**
+	 * @return the original RTF source. For documents parsed from bytes this widens the bytes to an ISO-8859-1
+	 * {@code String} on every call.
+	 * @throws IllegalStateException if the document does not {@link #isSourceRetained() retain its source}.
+	 */
 	@NotNull
 	public String getSource() {
-		return source;
+		if (source == null) {
+			throw new IllegalStateException("The RTF source was not retained for this document.");
+		}
+		return source.toString();
+	}
+
+	public boolean isSourceRetained() {
+		return source != null;
+	}
+
+	/**
+	 * @return the header captured while parsing, or {@code null} for documents that retain their source instead.
+	 */
+	@Nullable
+	public RtfHeader getHeader() {
+		return header;
 	}
 
 	public boolean isBytePreservingInput() {
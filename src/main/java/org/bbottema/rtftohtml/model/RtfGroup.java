@@ -5,6 +5,7 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static java.util.Objects.requireNonNull;
 
@@ -13,6 +14,7 @@ public final class RtfGroup implements RtfNode {
 	private final List<RtfNode> children = new ArrayList<>();
 	private final int startOffset;
 	private int endOffset;
+	private Consumer<RtfGroup> childLoader;
 
 	public RtfGroup(@NotNull RtfPosition position) {
 		RtfPosition requiredPosition = requireNonNull(position, "position");
@@ -20,6 +22,14 @@ public final class RtfGroup implements RtfNode {
 		this.endOffset = requiredPosition.getEndOffset();
 	}
 
+	/**
+	 * Creates a group whose children are added by the loader the first time they are asked for.
+	 */
+	public RtfGroup(@NotNull RtfPosition position, @NotNull Consumer<RtfGroup> childLoader) {
+		this(position);
+		this.childLoader = requireNonNull(childLoader, "childLoader");
+	}
+
 	public void addChild(@NotNull RtfNode child) {
 		children.add(requireNonNull(child, "child"));
 	}
@@ -30,9 +40,21 @@ public final class RtfGroup implements RtfNode {
 
 	@NotNull
 	public List<RtfNode> getChildren() {
+		if (childLoader != null) {
+			Consumer<RtfGroup> loader = childLoader;
+			childLoader = null;
+			loader.accept(this);
+		}
 		return Collections.unmodifiableList(children);
 	}
 
+	/**
+	 * @return whether the children exist yet; {@code false} only for a lazily loaded group that was never inspected.
+	 */
+	public boolean isMaterialized() {
+		return childLoader == null;
+	}
+
 	@NotNull
 	@Override
 	public RtfPosition getPosition() {
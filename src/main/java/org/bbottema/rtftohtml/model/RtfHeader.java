@@ -0,0 +1,80 @@
+package org.bbottema.rtftohtml.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * What the preamble of an RTF document declares: the Outlook encapsulation markers, code page, default font, and the
+ * charsets of the font table.
+ */
+public final class RtfHeader {
+
+	private final boolean fromHtml;
+	private final boolean fromText;
+	private final Integer ansiCodePage;
+	private final Integer defaultFont;
+	private final String defaultFontName;
+	private final Map<Integer, Integer> fontCharsets;
+
+	public RtfHeader(boolean fromHtml, boolean fromText, @Nullable Integer ansiCodePage, @Nullable Integer defaultFont,
+					 @Nullable String defaultFontName, @NotNull Map<Integer, Integer> fontCharsets) {
+		this.fromHtml = fromHtml;
+		this.fromText = fromText;
+		this.ansiCodePage = ansiCodePage;
+		this.defaultFont = defaultFont;
+		this.defaultFontName = defaultFontName;
+		this.fontCharsets = Collections.unmodifiableMap(new LinkedHashMap<>(requireNonNull(fontCharsets, "fontCharsets")));
+	}
+
+	/**
+	 * @return whether the document encapsulates HTML ({@code \fromhtml}), which takes precedence over {@link #isFromText()}.
+	 */
+	public boolean isFromHtml() {
+		return fromHtml;
+	}
+
+	/**
+	 * @return whether the document encapsulates plain text ({@code \fromtext}).
+	 */
+	public boolean isFromText() {
+		return fromText;
+	}
+
+	/**
+	 * @return the {@code \ansicpg} code page, or {@code null} if the header declares none.
+	 */
+	@Nullable
+	public Integer getAnsiCodePage() {
+		return ansiCodePage;
+	}
+
+	/**
+	 * @return the {@code \deff} font number, or {@code null} if the header declares none.
+	 */
+	@Nullable
+	public Integer getDefaultFont() {
+		return defaultFont;
+	}
+
+	/**
+	 * @return the font table's name for the {@link #getDefaultFont() default font}, or {@code null} if it has none.
+	 */
+	@Nullable
+	public String getDefaultFontName() {
+		return defaultFontName;
+	}
+
+	/**
+	 * @return the {@code \fcharset} of each font in the font table that declares one, by font number.
+	 */
+	@NotNull
+	public Map<Integer, Integer> getFontCharsets() {
+		return fontCharsets;
+	}
+}
@@ -5,6 +5,12 @@ package org.bbottema.rtftohtml.model;
  */
 public final class RtfPosition {
 
+	/**
+	 * Shared by the nodes of documents parsed without positions, see
+	 * {@link org.bbottema.rtftohtml.RtfParserOptions.Builder#lightweight(boolean)}.
+	 */
+	public static final RtfPosition UNKNOWN = new RtfPosition(-1, -1);
+
 	private final int startOffset;
 	private final int endOffset;
 
@@ -0,0 +1,34 @@
+package org.bbottema.rtftohtml.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Placeholder for a destination group that the parser was configured to skip. Only the destination's name and the
+ * group's position are kept; its content is still available from the document source.
+ */
+public final class RtfSkippedGroup implements RtfNode {
+
+	private final String destination;
+	private final RtfPosition position;
+
+	public RtfSkippedGroup(@NotNull String destination, @NotNull RtfPosition position) {
+		this.destination = requireNonNull(destination, "destination");
+		this.position = requireNonNull(position, "position");
+	}
+
+	/**
+	 * @return the control word that opens the group, without the {@code \*} marker.
+	 */
+	@NotNull
+	public String getDestination() {
+		return destination;
+	}
+
+	@NotNull
+	@Override
+	public RtfPosition getPosition() {
+		return position;
+	}
+}
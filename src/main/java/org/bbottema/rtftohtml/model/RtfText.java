@@ -2,21 +2,47 @@ package org.bbottema.rtftohtml.model;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.CharBuffer;
+
 import static java.util.Objects.requireNonNull;
 
 public final class RtfText implements RtfNode {
 
-	private final String text;
+	private final CharSequence text;
 	private final RtfPosition position;
 
 	public RtfText(@NotNull String text, @NotNull RtfPosition position) {
+		this((CharSequence) text, position);
+	}
+
+	private RtfText(@NotNull CharSequence text, @NotNull RtfPosition position) {
 		this.text = requireNonNull(text, "text");
 		this.position = requireNonNull(position, "position");
 	}
 
+	/**
+	 * Creates a text node backed by {@code text} without copying it, typically a slice of the document source. The
+	 * sequence must not change afterwards.
+	 */
+	@NotNull
+	public static RtfText view(@NotNull CharSequence text, @NotNull RtfPosition position) {
+		return new RtfText(text, position);
+	}
+
+	/**
+	 * @return the text as a {@code String}; for nodes backed by a view this copies the characters on every call.
+	 */
 	@NotNull
 	public String getText() {
-		return text;
+		return text.toString();
+	}
+
+	/**
+	 * @return the text without copying it.
+	 */
+	@NotNull
+	public CharSequence asCharSequence() {
+		return text instanceof CharBuffer ? ((CharBuffer) text).duplicate() : text;
 	}
 
 	@NotNull
@@ -0,0 +1,86 @@
+package org.bbottema.rtftohtml;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bbottema.rtftohtml.impl.util.ByteUtil.hexStringToByteArray;
+
+public class CompressedRtfInputStreamTest {
+
+	// MS-OXRTFCP section 4.1 (simple compressed RTF) and 4.2 (a reference that overlaps its own output)
+	private static final byte[] SIMPLE = hexStringToByteArray("2d0000002b0000004c5a4675f1c5c7a703000a00726370673132354232"
+			+ "0af32068656c090020627705b06c647d0a800fa0");
+	private static final byte[] CROSSING_RUN = hexStringToByteArray("1a0000001c0000004c5a4675e2d44b51410004205758595a0d6e7d010eb0");
+
+	@Test
+	public void testDecompressesSpecificationExamples() throws IOException {
+		assertThat(readAll(new CompressedRtfInputStream(new ByteArrayInputStream(SIMPLE))))
+				.isEqualTo("{\\rtf1\\ansi\\ansicpg1252\\pard hello world}\r\n");
+		assertThat(readAll(new CompressedRtfInputStream(new ByteArrayInputStream(CROSSING_RUN))))
+				.isEqualTo("{\\rtf1 WXYZWXYZWXYZWXYZWXYZ}");
+	}
+
+	@Test
+	public void testReadsSingleBytesAndStopsAtTheDeclaredCompressedSize() throws IOException {
+		ByteArrayInputStream compressed = new ByteArrayInputStream(concat(CROSSING_RUN, "trailing".getBytes(StandardCharsets.US_ASCII)));
+		InputStream decompressed = new CompressedRtfInputStream(compressed);
+		StringBuilder result = new StringBuilder();
+		int value;
+		while ((value = decompressed.read()) != -1) {
+			result.append((char) value);
+		}
+
+		assertThat(result.toString()).isEqualTo("{\\rtf1 WXYZWXYZWXYZWXYZWXYZ}");
+		assertThat(compressed.available()).isEqualTo("trailing".length());
+	}
+
+	@Test
+	public void testPassesUncompressedContentThrough() throws IOException {
+		byte[] rtf = "{\\rtf1 plain}".getBytes(StandardCharsets.US_ASCII);
+		byte[] header = hexStringToByteArray(String.format("%02x000000%02x0000004d454c4100000000", rtf.length + 12, rtf.length));
+
+		assertThat(readAll(new CompressedRtfInputStream(new ByteArrayInputStream(concat(header, rtf))))).isEqualTo("{\\rtf1 plain}");
+	}
+
+	@Test
+	public void testRejectsCorruptedContent() {
+		byte[] corrupted = SIMPLE.clone();
+		corrupted[12] ^= 1;
+
+		assertThatThrownBy(() -> readAll(new CompressedRtfInputStream(new ByteArrayInputStream(corrupted))))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("CRC mismatch");
+		assertThatThrownBy(() -> readAll(new CompressedRtfInputStream(new ByteArrayInputStream(SIMPLE, 0, 30))))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void testConvertsCompressedOutlookBodies() {
+		assertThat(OutlookRtfToHtmlConverter.INSTANCE.toHtmlFromCompressedRtf(new ByteArrayInputStream(SIMPLE)))
+				.isEqualTo(StandardRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1\\ansi\\ansicpg1252\\pard hello world}\r\n"));
+	}
+
+	private static String readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[7];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+		}
+		return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
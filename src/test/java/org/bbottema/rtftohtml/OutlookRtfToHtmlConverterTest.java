@@ -1,7 +1,13 @@
 package org.bbottema.rtftohtml;
 
+import org.bbottema.rtftohtml.internal.RtfToHtmlEngine;
+import org.bbottema.rtftohtml.model.RtfDocument;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -10,6 +16,10 @@ import static org.bbottema.rtftohtml.impl.TestUtils.normalizeText;
 
 public class OutlookRtfToHtmlConverterTest {
 
+	private static final String[] CORPUS = { "bulletnumber-test.rtf", "chinese-exotic-test.rtf", "chinese-fontbased-charset-override.rtf",
+			"complex-test.rtf", "hebrew-test.rtf", "mixed-charsets-test.rtf", "newlines-test.rtf", "russian-test.rtf",
+			"simple-test.rtf", "unicode-test.rtf" };
+
 	@Test
 	public void testSimpleConversion() {
 		String html = OutlookRtfToHtmlConverter.INSTANCE.toHtml(classpathFileToString("test-messages/input/simple-test.rtf"));
@@ -268,6 +278,54 @@ public class OutlookRtfToHtmlConverterTest {
 		assertThat(html).doesNotContain("ABC");
 	}
 
+	@Test
+	public void testStreamedConversionMatchesInMemoryConversion() {
+		byte[] rtf = classpathFileToString("test-messages/input/complex-test.rtf").getBytes(StandardCharsets.UTF_8);
+		StringWriter html = new StringWriter();
+
+		OutlookRtfToHtmlConverter.INSTANCE.toHtml(new ByteArrayInputStream(rtf), html);
+
+		assertThat(html.toString()).isEqualTo(OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf));
+	}
+
+	@Test
+	public void testSinglePassConversionMatchesRenderingParsedDocuments() {
+		RtfToHtmlEngine engine = new RtfToHtmlEngine(RtfToHtmlOptions.defaults());
+		for (String input : CORPUS) {
+			byte[] rtf = classpathFileToString("test-messages/input/" + input).getBytes(StandardCharsets.UTF_8);
+			RtfDocument document = new RtfParser().parse(rtf);
+
+			assertThat(OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf)).isEqualTo(engine.renderOutlook(document));
+			assertThat(StandardRtfToHtmlConverter.INSTANCE.toHtml(rtf)).isEqualTo(engine.renderStandard(document));
+		}
+	}
+
+	@Test
+	public void testUtf8OutputMatchesEncodingTheConvertedString() {
+		for (String input : CORPUS) {
+			String rtf = classpathFileToString("test-messages/input/" + input);
+			byte[] rtfBytes = rtf.getBytes(StandardCharsets.UTF_8);
+			byte[] expected = OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtfBytes).getBytes(StandardCharsets.UTF_8);
+			ByteArrayOutputStream fromBytes = new ByteArrayOutputStream();
+			ByteArrayOutputStream fromString = new ByteArrayOutputStream();
+			ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length + 1);
+
+			OutlookRtfToHtmlConverter.INSTANCE.toHtmlUtf8(rtfBytes, fromBytes);
+			OutlookRtfToHtmlConverter.INSTANCE.toHtmlUtf8(rtf, fromString);
+			OutlookRtfToHtmlConverter.INSTANCE.toHtmlUtf8(new ByteArrayInputStream(rtfBytes), fromStream);
+			int written = OutlookRtfToHtmlConverter.INSTANCE.toHtmlUtf8(rtfBytes, buffer);
+
+			assertThat(fromBytes.toByteArray()).isEqualTo(expected);
+			assertThat(fromString.toByteArray()).isEqualTo(OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf).getBytes(StandardCharsets.UTF_8));
+			assertThat(fromStream.toByteArray()).isEqualTo(expected);
+			assertThat(written).isEqualTo(expected.length);
+			byte[] buffered = new byte[written];
+			((ByteBuffer) buffer.flip()).get(buffered);
+			assertThat(buffered).isEqualTo(expected);
+		}
+	}
+
 	private static String removeFinalLineBreak(String text) {
 		return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
 	}
@@ -0,0 +1,75 @@
+package org.bbottema.rtftohtml;
+
+import org.bbottema.rtftohtml.model.RtfDocument;
+import org.bbottema.rtftohtml.model.RtfGroup;
+import org.bbottema.rtftohtml.model.RtfHeader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RtfHeaderSnifferTest {
+
+	private static final String OUTLOOK_HEADER = "{\\rtf1\\ansi\\ansicpg936\\fromhtml1 \\deff1"
+			+ "{\\fonttbl{\\f0\\fswiss\\fcharset0 Arial;}{\\f1\\fnil\\fcharset134{\\*\\panose 02010600030101010101} SimSun{\\*\\falt Song};}}"
+			+ "{\\colortbl ;\\red0\\green0\\blue255;}"
+			+ "{\\*\\htmltag19 <html>}\\htmlrtf body{\\fromtext x}\\htmlrtf0 ";
+
+	@Test
+	public void testReadsModeCodePageAndFontTable() {
+		RtfHeader header = RtfHeaderSniffer.sniff(OUTLOOK_HEADER + "}");
+
+		assertThat(header.isFromHtml()).isTrue();
+		assertThat(header.isFromText()).isFalse();
+		assertThat(header.getAnsiCodePage()).isEqualTo(936);
+		assertThat(header.getDefaultFont()).isEqualTo(1);
+		assertThat(header.getDefaultFontName()).isEqualTo("SimSun");
+		assertThat(header.getFontCharsets()).containsEntry(0, 0).containsEntry(1, 134).hasSize(2);
+	}
+
+	@Test
+	public void testReportsNothingForDocumentsWithoutHeaderWords() {
+		RtfHeader header = RtfHeaderSniffer.sniff("{\\rtf1 body \\fromtext}".getBytes(StandardCharsets.ISO_8859_1));
+
+		assertThat(header.isFromHtml()).isFalse();
+		assertThat(header.isFromText()).isFalse();
+		assertThat(header.getAnsiCodePage()).isNull();
+		assertThat(header.getDefaultFont()).isNull();
+		assertThat(header.getFontCharsets()).isEmpty();
+	}
+
+	@Test
+	public void testStopsReadingStreamsAtTheFirstBodyContent() {
+		final int[] bytesRead = new int[1];
+		final byte[] header = OUTLOOK_HEADER.getBytes(StandardCharsets.ISO_8859_1);
+		InputStream endless = new InputStream() {
+			@Override
+			public int read() {
+				int position = bytesRead[0]++;
+				return position < header.length ? header[position] : 'x';
+			}
+		};
+
+		RtfHeader sniffed = RtfHeaderSniffer.sniff(endless);
+
+		assertThat(sniffed.isFromHtml()).isTrue();
+		assertThat(bytesRead[0]).isLessThan(header.length + 8192);
+	}
+
+	@Test
+	public void testSniffsParsedDocumentsAndTapesWithoutLoadingTheBody() {
+		String rtf = OUTLOOK_HEADER + "{\\b bold}}";
+		RtfDocument document = new RtfParser(RtfParserOptions.builder().lazy(true).build()).parse(new ByteArrayInputStream(rtf.getBytes(StandardCharsets.ISO_8859_1)));
+
+		RtfHeader header = RtfHeaderSniffer.sniff(document);
+
+		List<?> children = ((RtfGroup) document.getRoot().getChildren().get(0)).getChildren();
+		assertThat(header.getFontCharsets()).containsEntry(1, 134);
+		assertThat(((RtfGroup) children.get(children.size() - 1)).isMaterialized()).isFalse();
+		assertThat(RtfHeaderSniffer.sniff(new RtfParser().parseTape(rtf)).getDefaultFontName()).isEqualTo("SimSun");
+	}
+}
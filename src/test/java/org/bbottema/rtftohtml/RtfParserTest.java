@@ -3,16 +3,27 @@ package org.bbottema.rtftohtml;
 import org.bbottema.rtftohtml.model.RtfBinary;
 import org.bbottema.rtftohtml.model.RtfControlSymbol;
 import org.bbottema.rtftohtml.model.RtfControlWord;
+import org.bbottema.rtftohtml.model.RtfControlWords;
 import org.bbottema.rtftohtml.model.RtfDocument;
 import org.bbottema.rtftohtml.model.RtfGroup;
 import org.bbottema.rtftohtml.model.RtfHexBytes;
 import org.bbottema.rtftohtml.model.RtfNode;
+import org.bbottema.rtftohtml.model.RtfPosition;
+import org.bbottema.rtftohtml.model.RtfSkippedGroup;
 import org.bbottema.rtftohtml.model.RtfText;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -76,6 +87,200 @@ public class RtfParserTest {
 		assertThat(((RtfText) rtfRoot.getChildren().get(2)).getText()).isEqualTo("raw é");
 	}
 
+	@Test
+	public void testParsesDirectByteBuffersRelativeToTheirPosition() {
+		byte[] rtfBytes = "ignored{\\rtf1\\ansi caf\\'e9}".getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(rtfBytes.length);
+		buffer.put(rtfBytes);
+		buffer.position("ignored".length());
+
+		RtfDocument document = new RtfParser().parse(buffer);
+		RtfGroup rtfRoot = (RtfGroup) document.getRoot().getChildren().get(0);
+
+		assertThat(document.isBytePreservingInput()).isTrue();
+		assertThat(document.getSource()).isEqualTo("{\\rtf1\\ansi caf\\'e9}");
+		assertThat(rtfRoot.getPosition().getStartOffset()).isEqualTo(0);
+		assertThat(((RtfText) rtfRoot.getChildren().get(2)).getText()).isEqualTo("caf");
+		assertThat(((RtfHexBytes) rtfRoot.getChildren().get(3)).getBytes()).containsExactly((byte) 0xe9);
+	}
+
+	@Test
+	public void testParsesMemoryMappedFiles() throws IOException {
+		Path rtfFile = Files.createTempFile("rtf-parser-test", ".rtf");
+		rtfFile.toFile().deleteOnExit();
+		Files.write(rtfFile, "{\\rtf1\\ansi caf\\'e9\\bin2 AB}".getBytes(StandardCharsets.ISO_8859_1));
+
+		RtfDocument document = new RtfParser().parse(rtfFile);
+		RtfGroup rtfRoot = (RtfGroup) document.getRoot().getChildren().get(0);
+
+		assertThat(document.isBytePreservingInput()).isTrue();
+		assertThat(((RtfText) rtfRoot.getChildren().get(2)).getText()).isEqualTo("caf");
+		assertThat(((RtfHexBytes) rtfRoot.getChildren().get(3)).getBytes()).containsExactly((byte) 0xe9);
+		assertThat(((RtfBinary) rtfRoot.getChildren().get(4)).getBytes()).containsExactly((byte) 'A', (byte) 'B');
+		assertThat(rtfRoot.getPosition().getEndOffset()).isEqualTo(document.getSource().length());
+	}
+
+	@Test
+	public void testExposesTextAndPayloadsAsViewsIntoTheSource() {
+		ByteBuffer buffer = ByteBuffer.wrap("{\\rtf1 caf\\bin2 AB}".getBytes(StandardCharsets.ISO_8859_1));
+
+		RtfGroup rtfRoot = (RtfGroup) new RtfParser().parse(buffer).getRoot().getChildren().get(0);
+		RtfText text = (RtfText) rtfRoot.getChildren().get(1);
+		ByteBuffer payload = ((RtfBinary) rtfRoot.getChildren().get(2)).asByteBuffer();
+		buffer.put(17, (byte) 'Z');
+
+		assertThat(text.asCharSequence().toString()).isEqualTo("caf");
+		assertThat(payload.isReadOnly()).isTrue();
+		assertThat(payload.remaining()).isEqualTo(2);
+		assertThat(payload.get(1)).isEqualTo((byte) 'Z');
+	}
+
+	@Test
+	public void testReportsTokensToEventHandlerWithoutBuildingATree() {
+		final List<String> events = new ArrayList<>();
+		new RtfParser().parse("}{\\rtf1 a\\'e9{\\*\\bin2 xy}", new RtfEventHandler() {
+			@Override
+			public void onGroupStart(int startOffset) {
+				events.add("{" + startOffset);
+			}
+
+			@Override
+			public void onGroupEnd(int endOffset) {
+				events.add("}" + endOffset);
+			}
+
+			@Override
+			public void onControlWord(@NotNull String name, int code, boolean hasParameter, int parameter, int startOffset, int endOffset) {
+				events.add(name + (hasParameter ? parameter : ""));
+			}
+
+			@Override
+			public void onControlSymbol(char symbol, int startOffset, int endOffset) {
+				events.add("symbol " + symbol);
+			}
+
+			@Override
+			public void onText(@NotNull String text, int startOffset, int endOffset) {
+				events.add("text " + text);
+			}
+
+			@Override
+			public void onHexBytes(@NotNull byte[] bytes, int startOffset, int endOffset) {
+				events.add("hex " + bytes.length);
+			}
+
+			@Override
+			public void onBinary(@NotNull byte[] bytes, int startOffset, int endOffset) {
+				events.add("bin " + new String(bytes, StandardCharsets.ISO_8859_1));
+			}
+
+			@Override
+			public void onDocumentEnd(int endOffset) {
+				events.add("end " + endOffset);
+			}
+		});
+
+		assertThat(events).containsExactly("{1", "rtf1", "text a", "hex 1", "{13", "symbol *", "bin xy", "}25", "end 25");
+	}
+
+	@Test
+	public void testResolvesControlWordCodesAndInternsUnknownWords() {
+		RtfDocument document = new RtfParser().parse("{\\rtf1\\b\\custom1\\b0\\custom2}".getBytes(StandardCharsets.ISO_8859_1));
+
+		List<RtfNode> children = ((RtfGroup) document.getRoot().getChildren().get(0)).getChildren();
+		RtfControlWord firstCustom = (RtfControlWord) children.get(2);
+		RtfControlWord secondCustom = (RtfControlWord) children.get(4);
+
+		assertThat(((RtfControlWord) children.get(0)).getCode()).isEqualTo(RtfControlWords.RTF);
+		assertThat(((RtfControlWord) children.get(1)).getCode()).isEqualTo(RtfControlWords.B);
+		assertThat(((RtfControlWord) children.get(3)).getName()).isSameAs(RtfControlWords.nameOf(RtfControlWords.B));
+		assertThat(firstCustom.getCode()).isEqualTo(RtfControlWords.UNKNOWN);
+		assertThat(secondCustom.getName()).isEqualTo("custom");
+		assertThat(secondCustom.getName()).isSameAs(firstCustom.getName());
+		assertThat(secondCustom.getParameter()).isEqualTo(2);
+	}
+
+	@Test
+	public void testParallelParsingStitchesSegmentsIntoTheSameTree() {
+		StringBuilder rtf = new StringBuilder("{\\rtf1\\ansi{\\fonttbl{\\f0 Arial;}}");
+		for (int i = 0; i < 200; i++) {
+			rtf.append("{\\pard\\b para ").append(i).append("\\par}\\{{\\bin3 {}}}\\'7b\r\n");
+		}
+		rtf.append("}trailing{\\rtf1 second}}");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RtfParser parallelParser = new RtfParser(RtfParserOptions.builder().parallel(pool).parallelThreshold(0).build());
+
+			RtfDocument sequential = new RtfParser().parse(rtf.toString());
+			RtfDocument parallel = parallelParser.parse(rtf.toString());
+
+			assertThat(describe(parallel.getRoot())).isEqualTo(describe(sequential.getRoot()));
+			assertThat(((RtfGroup) parallel.getRoot().getChildren().get(0)).getChildren()).hasSize(3 + 200 * 4);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSkipsConfiguredDestinationsWithASinglePlaceholder() {
+		RtfParser parser = new RtfParser(RtfParserOptions.builder().skipDestinations(RtfParserOptions.DISCARDED_DESTINATIONS).build());
+
+		RtfDocument document = parser.parse("{\\rtf1{\\*\\themedata {\\}\\bin2 }{}}{\\stylesheet{\\s0 Normal;}}{\\fonttbl}body{\\*\\datastore 01");
+
+		List<RtfNode> children = ((RtfGroup) document.getRoot().getChildren().get(0)).getChildren();
+		RtfSkippedGroup themeData = (RtfSkippedGroup) children.get(1);
+		RtfSkippedGroup styleSheet = (RtfSkippedGroup) children.get(2);
+		RtfSkippedGroup unclosed = (RtfSkippedGroup) children.get(5);
+
+		assertThat(children).hasSize(6);
+		assertThat(themeData.getDestination()).isEqualTo("themedata");
+		assertThat(themeData.getPosition().getStartOffset()).isEqualTo(6);
+		assertThat(themeData.getPosition().getEndOffset()).isEqualTo(33);
+		assertThat(styleSheet.getDestination()).isEqualTo("stylesheet");
+		assertThat(((RtfGroup) children.get(3)).getChildren()).hasSize(1);
+		assertThat(((RtfText) children.get(4)).getText()).isEqualTo("body");
+		assertThat(unclosed.getDestination()).isEqualTo("datastore");
+		assertThat(unclosed.getPosition().getEndOffset()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testLazyParsingLoadsGroupsOnFirstInspection() {
+		String rtf = "}{\\rtf1{\\fonttbl{\\f0 Arial;}}{\\pict\\bin2 {}}body{\\b bold}\\'e9{\\i unclosed";
+		RtfDocument document = new RtfParser(RtfParserOptions.builder().lazy(true).build()).parse(rtf);
+
+		assertThat(document.getRoot().isMaterialized()).isFalse();
+		RtfGroup rtfRoot = (RtfGroup) document.getRoot().getChildren().get(0);
+		RtfGroup fontTable = (RtfGroup) rtfRoot.getChildren().get(1);
+		RtfGroup bold = (RtfGroup) rtfRoot.getChildren().get(4);
+
+		assertThat(rtfRoot.isMaterialized()).isTrue();
+		assertThat(fontTable.isMaterialized()).isFalse();
+		assertThat(bold.isMaterialized()).isFalse();
+		assertThat(((RtfGroup) fontTable.getChildren().get(1)).isMaterialized()).isFalse();
+		assertThat(describe(document.getRoot())).isEqualTo(describe(new RtfParser().parse(rtf).getRoot()));
+	}
+
+	@Test
+	public void testLightweightDocumentsKeepNeitherSourceNorPositions() {
+		byte[] rtf = "{\\rtf1\\ansi\\fromhtml1 {\\pict\\bin2 AB}body\\par}".getBytes(StandardCharsets.ISO_8859_1);
+		RtfDocument document = new RtfParser(RtfParserOptions.builder().lightweight(true).build()).parse(ByteBuffer.wrap(rtf));
+		Arrays.fill(rtf, (byte) '?');
+
+		List<RtfNode> children = ((RtfGroup) document.getRoot().getChildren().get(0)).getChildren();
+		RtfBinary binary = (RtfBinary) ((RtfGroup) children.get(3)).getChildren().get(1);
+
+		assertThat(document.isSourceRetained()).isFalse();
+		assertThatThrownBy(document::getSource).isInstanceOf(IllegalStateException.class);
+		assertThat(document.getHeader().isFromHtml()).isTrue();
+		assertThat(binary.getBytes()).containsExactly((byte) 'A', (byte) 'B');
+		assertThat(((RtfText) children.get(4)).getText()).isEqualTo("body");
+		assertThat(children.get(4).getPosition()).isSameAs(RtfPosition.UNKNOWN);
+		assertThat(children.get(3).getPosition().getEndOffset()).isEqualTo(37);
+		assertThat(new RtfParser().parse("{\\rtf1}").getHeader()).isNull();
+		assertThatThrownBy(() -> RtfParserOptions.builder().lazy(true).lightweight(true).build())
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
 	@Test
 	public void testSourceTextOutsideTheRtfGroupRemainsInspectable() {
 		RtfDocument document = new RtfParser().parse("prefix{\\rtf1 body}suffix");
@@ -105,4 +310,18 @@ public class RtfParserTest {
 		assertThatThrownBy(() -> rtfRoot.getChildren().clear())
 				.isInstanceOf(UnsupportedOperationException.class);
 	}
+
+	@NotNull
+	private static String describe(@NotNull RtfNode node) {
+		StringBuilder description = new StringBuilder(node.getClass().getSimpleName())
+				.append(node.getPosition().getStartOffset()).append(',').append(node.getPosition().getEndOffset());
+		if (node instanceof RtfGroup) {
+			description.append('[');
+			for (RtfNode child : ((RtfGroup) node).getChildren()) {
+				description.append(describe(child)).append(' ');
+			}
+			description.append(']');
+		}
+		return description.toString();
+	}
 }
@@ -2,6 +2,8 @@ package org.bbottema.rtftohtml;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -37,6 +39,18 @@ public class RtfPublicApiTest {
 		assertThat(image.getHeightGoalTwips()).isEqualTo(40);
 	}
 
+	@Test
+	public void testRtfImageExposesReadOnlyByteView() {
+		RtfImage image = new RtfImage("png", ByteBuffer.wrap(new byte[] { 0, 1, 2, 3 }, 1, 3), null, null, null, null);
+
+		ByteBuffer view = image.asByteBuffer();
+		view.get();
+
+		assertThat(view.isReadOnly()).isTrue();
+		assertThat(image.asByteBuffer().remaining()).isEqualTo(3);
+		assertThat(image.getBytes()).containsExactly((byte) 1, (byte) 2, (byte) 3);
+	}
+
 	@Test
 	public void testConvertersRejectNullInput() {
 		assertThatThrownBy(() -> StandardRtfToHtmlConverter.INSTANCE.toHtml((String) null))
@@ -0,0 +1,75 @@
+package org.bbottema.rtftohtml;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RtfReaderTest {
+
+	@Test
+	public void testWalksTokensInSourceOrder() {
+		RtfReader reader = new RtfReader("{\\rtf1\\ansi text\\'e9\\~\\bin2 AB}");
+
+		assertThat(reader.next()).isEqualTo(RtfTokenType.GROUP_START);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.CONTROL_WORD);
+		assertThat(reader.getControlWordName()).isEqualTo("rtf");
+		assertThat(reader.hasParameter()).isTrue();
+		assertThat(reader.getParameter()).isEqualTo(1);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.CONTROL_WORD);
+		assertThat(reader.isControlWord("ansi")).isTrue();
+		assertThat(reader.hasParameter()).isFalse();
+		assertThat(reader.next()).isEqualTo(RtfTokenType.TEXT);
+		assertThat(reader.getText()).isEqualTo("text");
+		assertThat(reader.next()).isEqualTo(RtfTokenType.HEX_BYTES);
+		assertThat(reader.getBytes()).containsExactly((byte) 0xe9);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.CONTROL_SYMBOL);
+		assertThat(reader.getSymbol()).isEqualTo('~');
+		assertThat(reader.next()).isEqualTo(RtfTokenType.BINARY);
+		assertThat(reader.getBytes()).containsExactly((byte) 'A', (byte) 'B');
+		assertThat(reader.next()).isEqualTo(RtfTokenType.GROUP_END);
+		assertThat(reader.getEndOffset()).isEqualTo(31);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.END_OF_INPUT);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.END_OF_INPUT);
+	}
+
+	@Test
+	public void testSkipGroupJumpsOverNestedGroupsAndBinaryBraces() {
+		RtfReader reader = new RtfReader("{\\rtf1{\\fonttbl{\\f0 Arial;}\\bin1 }}{\\*\\themedata \\{ }body}"
+				.getBytes(StandardCharsets.ISO_8859_1));
+
+		reader.next();
+		reader.next();
+		assertThat(reader.next()).isEqualTo(RtfTokenType.GROUP_START);
+		assertThat(reader.skipGroup()).isEqualTo(RtfTokenType.GROUP_END);
+		assertThat(reader.getDepth()).isEqualTo(1);
+
+		assertThat(reader.next()).isEqualTo(RtfTokenType.GROUP_START);
+		assertThat(reader.next()).isEqualTo(RtfTokenType.CONTROL_SYMBOL);
+		assertThat(reader.skipGroup()).isEqualTo(RtfTokenType.GROUP_END);
+
+		assertThat(reader.next()).isEqualTo(RtfTokenType.TEXT);
+		assertThat(reader.getText()).isEqualTo("body");
+		assertThat(reader.getDepth()).isEqualTo(1);
+	}
+
+	@Test
+	public void testSkipsUnbalancedClosingBraces() {
+		RtfReader reader = new RtfReader("}}{x}");
+
+		assertThat(reader.next()).isEqualTo(RtfTokenType.GROUP_START);
+		assertThat(reader.getStartOffset()).isEqualTo(2);
+	}
+
+	@Test
+	public void testRejectsAccessorsForOtherTokenTypes() {
+		RtfReader reader = new RtfReader("{\\rtf1}");
+		reader.next();
+
+		assertThatThrownBy(reader::getControlWordName).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(reader::getText).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(reader::getBytes).isInstanceOf(IllegalStateException.class);
+	}
+}
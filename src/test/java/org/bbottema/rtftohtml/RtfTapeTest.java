@@ -0,0 +1,113 @@
+package org.bbottema.rtftohtml;
+
+import org.bbottema.rtftohtml.model.RtfControlWords;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bbottema.rtftohtml.impl.TestUtils.classpathFileToString;
+
+public class RtfTapeTest {
+
+	@Test
+	public void testStoresNodesInDocumentOrderWithTreeLinks() {
+		RtfTape tape = new RtfParser().parseTape("x{\\rtf1\\custom text{\\b bold}\\'e9\\bin2 AB}".getBytes(StandardCharsets.ISO_8859_1));
+
+		int rtfGroup = tape.getNextSibling(tape.getFirstChild(0));
+		assertThat(tape.getKind(rtfGroup)).isEqualTo(RtfTokenType.GROUP_START);
+		assertThat(tape.getEndOffset(rtfGroup)).isEqualTo(tape.getEndOffset(0));
+
+		int rtf = tape.getFirstChild(rtfGroup);
+		assertThat(tape.getControlWordCode(rtf)).isEqualTo(RtfControlWords.RTF);
+		assertThat(tape.hasParameter(rtf)).isTrue();
+		assertThat(tape.getParameter(rtf)).isEqualTo(1);
+
+		int custom = tape.getNextSibling(rtf);
+		assertThat(tape.getControlWordName(custom)).isEqualTo("custom");
+		assertThat(tape.getControlWordCode(custom)).isEqualTo(RtfControlWords.UNKNOWN);
+
+		int text = tape.getNextSibling(custom);
+		assertThat(tape.getText(text)).isEqualTo("text");
+
+		int boldGroup = tape.getNextSibling(text);
+		assertThat(tape.getParent(tape.getFirstChild(boldGroup))).isEqualTo(boldGroup);
+		assertThat(tape.getStartOffset(boldGroup)).isEqualTo(19);
+		assertThat(tape.getEndOffset(boldGroup)).isEqualTo(28);
+
+		int hex = tape.getNextSibling(boldGroup);
+		assertThat(tape.getBytes(hex)).containsExactly((byte) 0xe9);
+
+		int binary = tape.getNextSibling(hex);
+		assertThat(tape.getBytes(binary)).containsExactly((byte) 'A', (byte) 'B');
+		assertThat(tape.getNextSibling(binary)).isEqualTo(RtfTape.NONE);
+		assertThatThrownBy(() -> tape.getText(binary)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testReplaysTheSameEventsAsTheParser() {
+		String rtf = "}{\\rtf1 a\\'e9{\\*\\bin2 xy}{\\b unclosed";
+		RecordingHandler parsed = new RecordingHandler();
+		RecordingHandler replayed = new RecordingHandler();
+
+		new RtfParser().parse(rtf, parsed);
+		new RtfParser().parseTape(rtf).replay(replayed);
+
+		assertThat(replayed.events.toString()).isEqualTo(parsed.events.toString());
+	}
+
+	@Test
+	public void testConvertsTapesLikeTheSource() {
+		String rtf = classpathFileToString("test-messages/input/complex-test.rtf");
+		RtfTape tape = new RtfParser().parseTape(rtf);
+
+		assertThat(StandardRtfToHtmlConverter.INSTANCE.toHtml(tape)).isEqualTo(StandardRtfToHtmlConverter.INSTANCE.toHtml(rtf));
+		assertThat(OutlookRtfToHtmlConverter.INSTANCE.toHtml(tape)).isEqualTo(OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf));
+	}
+
+	private static final class RecordingHandler implements RtfEventHandler {
+		private final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void onGroupStart(int startOffset) {
+			events.append('{').append(startOffset).append(' ');
+		}
+
+		@Override
+		public void onGroupEnd(int endOffset) {
+			events.append('}').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onControlWord(@NotNull String name, int code, boolean hasParameter, int parameter, int startOffset, int endOffset) {
+			events.append(name).append(code).append(hasParameter).append(parameter).append('@').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onControlSymbol(char symbol, int startOffset, int endOffset) {
+			events.append(symbol).append('@').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onText(@NotNull String text, int startOffset, int endOffset) {
+			events.append(text).append('@').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onHexBytes(@NotNull byte[] bytes, int startOffset, int endOffset) {
+			events.append("hex").append(bytes[0]).append('@').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onBinary(@NotNull byte[] bytes, int startOffset, int endOffset) {
+			events.append(new String(bytes, StandardCharsets.ISO_8859_1)).append('@').append(endOffset).append(' ');
+		}
+
+		@Override
+		public void onDocumentEnd(int endOffset) {
+			events.append("end").append(endOffset);
+		}
+	}
+}
@@ -1,10 +1,24 @@
 package org.bbottema.rtftohtml;
 
+import org.bbottema.rtftohtml.internal.RtfToHtmlEngine;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class StandardRtfToHtmlConverterTest {
 
@@ -52,6 +66,52 @@ public class StandardRtfToHtmlConverterTest {
 		assertThat(html).isEqualTo("<html><body><p>plain <strong>bold</strong> plain</p></body></html>");
 	}
 
+	@Test
+	public void testRunsWithTheSameFormattingShareTheirTags() {
+		String html = StandardRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1\\ansi\\b a\\u233?b\\'e9{\\f0 c}\\u-10179?\\u-8704?"
+				+ "\\i d\\b0 e\\i0\\ul f\\fs20 g\\fs20 h\\line i\\par j}");
+
+		assertThat(html).isEqualTo("<html><body><p><strong>a\u00e9b\u00e9c\ud83d\ude00</strong><em><strong>d</strong>e</em>"
+				+ "<span style=\"text-decoration:underline;\">f</span>"
+				+ "<span style=\"text-decoration:underline;font-size:10pt;\">gh<br>i</span></p>"
+				+ "<p><span style=\"text-decoration:underline;font-size:10pt;\">j</span></p></body></html>");
+	}
+
+	@Test
+	public void testInternsStylesAsCssClasses() {
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.cssClasses(true)
+				.build());
+		String rtf = "{\\rtf1\\qc\\ul a\\ul0 b\\fs20 c\\par\\ul d\\ul0\\fs20 e}";
+		StringWriter streamed = new StringWriter();
+
+		converter.toHtml(new ByteArrayInputStream(rtf.getBytes(StandardCharsets.US_ASCII)), streamed);
+
+		String expected = "<html><head><style>.c0{text-align:center}.c1{text-decoration:underline;}.c2{font-size:10pt;}"
+				+ ".c3{text-decoration:underline;font-size:10pt;}</style></head><body>"
+				+ "<p class=\"c0\"><span class=\"c1\">a</span>b<span class=\"c2\">c</span></p>"
+				+ "<p class=\"c0\"><span class=\"c3\">d</span><span class=\"c2\">e</span></p></body></html>";
+		assertThat(converter.toHtml(rtf)).isEqualTo(expected);
+		assertThat(streamed.toString()).isEqualTo(expected);
+		assertThat(converter.toHtml("{\\rtf1 \\b plain}")).isEqualTo("<html><body><p><strong>plain</strong></p></body></html>");
+	}
+
+	@Test
+	public void testDeeplyNestedGroupsRestoreTheirEnclosingFormatting() {
+		StringBuilder rtf = new StringBuilder("{\\rtf1 {\\b\\fs30\\qc ");
+		for (int depth = 0; depth < 200; depth++) {
+			rtf.append(depth % 2 == 0 ? "{\\i0\\plain " : "{\\i ");
+		}
+		rtf.append("deep");
+		for (int depth = 0; depth < 200; depth++) {
+			rtf.append('}');
+		}
+		String html = StandardRtfToHtmlConverter.INSTANCE.toHtml(rtf.append("outer} plain}").toString());
+
+		assertThat(html).isEqualTo("<html><body><p style=\"text-align:center\"><em>deep</em>"
+				+ "<strong><span style=\"font-size:15pt;\">outer</span></strong> plain</p></body></html>");
+	}
+
 	@Test
 	public void testRendersParagraphAlignmentPerParagraph() {
 		String html = StandardRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1\\pard\\qc centered\\par\\pard\\qr right\\par\\pard left}");
@@ -155,6 +215,188 @@ public class StandardRtfToHtmlConverterTest {
 		assertThat(html).isEqualTo("<html><body><p><img src=\"cid:&quot;&lt;&amp;\" width=\"10\" height=\"20\"></p></body></html>");
 	}
 
+	@Test
+	public void testConversionsStartFromCleanBuffers() {
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.imageHandler(image -> StandardRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1 nested}").length() + ".png")
+				.build());
+		StringBuilder large = new StringBuilder("{\\rtf1{\\fonttbl{\\f0\\fcharset134 SimSun;}}\\f0 ");
+		for (int i = 0; i < 100_000; i++) {
+			large.append("word\\'a1\\'a1 ");
+		}
+
+		String first = converter.toHtml("{\\rtf1 first{\\pict\\pngblip 89}}");
+		converter.toHtml(large.append('}').toString());
+		OutlookRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1\\fromhtml1 {\\*\\htmltag <p>}}");
+
+		assertThat(first).isEqualTo("<html><body><p>first<img src=\"39.png\"></p></body></html>");
+		assertThat(converter.toHtml("{\\rtf1 \\'a1 second")).isEqualTo("<html><body><p>\u00a1 second</p></body></html>");
+	}
+
+	@Test
+	public void testConvertsExtremeNestingOnASmallFixedStack() throws InterruptedException {
+		int depth = 100_000;
+		StringBuilder rtf = new StringBuilder("{\\rtf1 ");
+		for (int i = 0; i < depth; i++) {
+			rtf.append("{\\b x");
+		}
+		for (int i = 0; i < depth; i++) {
+			rtf.append('}');
+		}
+		String nested = rtf.append('}').toString();
+		String expected = StandardRtfToHtmlConverter.INSTANCE.toHtml(nested);
+		RtfToHtmlEngine engine = new RtfToHtmlEngine(RtfToHtmlOptions.defaults());
+		List<String> results = new ArrayList<>();
+		Throwable[] failure = new Throwable[1];
+
+		Thread worker = new Thread(null, () -> {
+			try {
+				results.add(engine.renderStandard(new RtfParser().parse(nested)));
+				results.add(engine.renderStandard(new RtfParser(RtfParserOptions.builder().lazy(true).build()).parse(nested)));
+				results.add(engine.renderStandard(new RtfParser(RtfParserOptions.builder().lightweight(true).build()).parse(nested)));
+				results.add(StandardRtfToHtmlConverter.INSTANCE.toHtml(new RtfParser().parseTape(nested)));
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		}, "nested-rtf", 256 * 1024);
+		worker.start();
+		worker.join(TimeUnit.SECONDS.toMillis(30));
+
+		assertThat(worker.isAlive()).isFalse();
+		assertThat(failure[0]).isNull();
+		assertThat(results).containsExactly(expected, expected, expected, expected);
+	}
+
+	@Test
+	public void testWritesUtf8WithInlineEscaping() {
+		StringBuilder rtf = new StringBuilder("{\\rtf1\\ansi\\fromtext ");
+		for (int i = 0; i < 5000; i++) {
+			rtf.append("a<b & \\u-10179?\\u-8704?\\'e9 ");
+		}
+		String fromText = rtf.append('}').toString();
+		String generic = "{\\rtf1 x < y & \\u-10179?\\u-8704? \\u-10179?}";
+		ByteArrayOutputStream html = new ByteArrayOutputStream();
+
+		OutlookRtfToHtmlConverter.INSTANCE.toHtmlUtf8(fromText, html);
+		ByteBuffer small = ByteBuffer.allocate(20);
+
+		assertThat(html.toByteArray()).isEqualTo(OutlookRtfToHtmlConverter.INSTANCE.toHtml(fromText).getBytes(StandardCharsets.UTF_8));
+		assertThat(StandardRtfToHtmlConverter.INSTANCE.toHtmlUtf8(generic.getBytes(StandardCharsets.ISO_8859_1), ByteBuffer.allocate(100)))
+				.isEqualTo(StandardRtfToHtmlConverter.INSTANCE.toHtml(generic).getBytes(StandardCharsets.UTF_8).length);
+		assertThatThrownBy(() -> StandardRtfToHtmlConverter.INSTANCE.toHtmlUtf8(generic.getBytes(StandardCharsets.ISO_8859_1), small))
+				.isInstanceOf(BufferOverflowException.class);
+	}
+
+	@Test
+	public void testDecodesPictureHexAcrossTextRunsAndEscapes() {
+		final RtfImage[] captured = new RtfImage[1];
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.imageHandler(image -> {
+					captured[0] = image;
+					return null;
+				})
+				.build());
+
+		converter.toHtml("{\\rtf1\\ansi{\\pict\\pngblip 89 5\r\n04E\\'47 f}}");
+
+		assertThat(captured[0].getBytes()).containsExactly((byte) 0x89, (byte) 0x50, (byte) 0x4e, (byte) 0x47);
+	}
+
+	@Test
+	public void testAccumulatesPictureBinaryAndHexPayloadsFromBytesAndText() {
+		final List<byte[]> captured = new ArrayList<>();
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.imageHandler(image -> {
+					captured.add(image.getBytes());
+					return null;
+				})
+				.build());
+		byte[] rtf = concat("{\\rtf1\\ansi{\\pict\\pngblip 8950\r\n4e4\\bin3 ".getBytes(StandardCharsets.ISO_8859_1),
+				new byte[] { 0x70, (byte) 0xab, 0x0d },
+				"7 0a}{\\pict\\pngblip 0d0a\\bin2 ".getBytes(StandardCharsets.ISO_8859_1),
+				new byte[] { 0x1a, 0x0a },
+				"00}}".getBytes(StandardCharsets.ISO_8859_1));
+
+		converter.toHtml(rtf);
+		converter.toHtml(new String(rtf, StandardCharsets.ISO_8859_1));
+
+		byte[] unaligned = { (byte) 0x89, 0x50, 0x4e, 0x47, 0x0a, (byte) 0xb0, (byte) 0xd7, 0x0a };
+		byte[] aligned = { 0x0d, 0x0a, 0x1a, 0x0a, 0x00 };
+		assertThat(captured).hasSize(4);
+		assertThat(captured.get(0)).isEqualTo(unaligned);
+		assertThat(captured.get(1)).isEqualTo(aligned);
+		assertThat(captured.get(2)).isEqualTo(unaligned);
+		assertThat(captured.get(3)).isEqualTo(aligned);
+	}
+
+	@Test
+	public void testDecodesPicturePayloadsWhenTheImageIsReadAfterConversion() {
+		final List<RtfImage> images = new ArrayList<>();
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.imageHandler(image -> {
+					images.add(image);
+					return "cid:" + image.getWidthPixels();
+				})
+				.build());
+		byte[] rtf = concat("{\\rtf1\\ansi{\\pict\\pngblip\\picw7 8950\r\n4e\\'47\\bin2 ".getBytes(StandardCharsets.ISO_8859_1),
+				new byte[] { 0x0d, 0x0a },
+				"}{\\pict\\pngblip\\picw9 1a\r\n0a\\bin1 ".getBytes(StandardCharsets.ISO_8859_1),
+				new byte[] { 0x00 },
+				"}}".getBytes(StandardCharsets.ISO_8859_1));
+
+		String html = converter.toHtml(rtf);
+		converter.toHtml(new String(rtf, StandardCharsets.ISO_8859_1));
+		converter.toHtml(new ByteArrayInputStream(rtf), new StringWriter());
+
+		assertThat(html).isEqualTo("<html><body><p><img src=\"cid:7\" width=\"7\"><img src=\"cid:9\" width=\"9\"></p></body></html>");
+		assertThat(images).hasSize(6);
+		for (int i = 0; i < images.size(); i += 2) {
+			assertThat(images.get(i).getBytes()).isEqualTo(new byte[] { (byte) 0x89, 0x50, 0x4e, 0x47, 0x0d, 0x0a });
+			assertThat(images.get(i + 1).asByteBuffer()).isEqualTo(ByteBuffer.wrap(new byte[] { 0x1a, 0x0a, 0x00 }));
+			assertThat(images.get(i + 1).getBytes()).isEqualTo(new byte[] { 0x1a, 0x0a, 0x00 });
+		}
+	}
+
+	@Test
+	public void testSpillsLargePicturePayloadsToATemporaryFileForTheDurationOfTheHandler() throws IOException {
+		byte[] payload = new byte[300_000];
+		new Random(42).nextBytes(payload);
+		StringBuilder hex = new StringBuilder();
+		for (int i = 0; i < payload.length; i++) {
+			hex.append(String.format("%02x", payload[i] & 0xff)).append(i % 64 == 63 ? "\r\n" : "");
+		}
+		byte[] rtf = concat(("{\\rtf1\\ansi{\\pict\\pngblip " + hex + "}{\\pict\\pngblip\\bin" + payload.length + " ").getBytes(StandardCharsets.ISO_8859_1),
+				payload,
+				"}{\\pict\\pngblip 89504e47}}".getBytes(StandardCharsets.ISO_8859_1));
+		final List<RtfImage> images = new ArrayList<>();
+		final List<byte[]> streamed = new ArrayList<>();
+		StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+				.imageSpillThreshold(1024)
+				.imageHandler(image -> {
+					images.add(image);
+					try (InputStream bytes = image.openStream()) {
+						streamed.add(readAll(bytes));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return null;
+				})
+				.build());
+
+		converter.toHtml(rtf);
+		converter.toHtml(new ByteArrayInputStream(rtf), new StringWriter());
+
+		assertThat(streamed).hasSize(6);
+		for (int i = 0; i < streamed.size(); i += 3) {
+			assertThat(streamed.get(i)).isEqualTo(payload);
+			assertThat(streamed.get(i + 1)).isEqualTo(payload);
+			assertThat(streamed.get(i + 2)).isEqualTo(new byte[] { (byte) 0x89, 0x50, 0x4e, 0x47 });
+			assertThatThrownBy(images.get(i)::openChannel).isInstanceOf(UncheckedIOException.class);
+			assertThatThrownBy(images.get(i + 1)::getBytes).isInstanceOf(UncheckedIOException.class);
+			assertThat(images.get(i + 2).getBytes()).isEqualTo(new byte[] { (byte) 0x89, 0x50, 0x4e, 0x47 });
+		}
+	}
+
 	@Test
 	public void testSkipsPictureGroupsWhenImageHandlerReturnsNoSource() {
 		String html = StandardRtfToHtmlConverter.INSTANCE.toHtml("{\\rtf1\\ansi before {\\pict\\pngblip 89504e47} after}");
@@ -168,4 +410,56 @@ public class StandardRtfToHtmlConverterTest {
 
 		assertThat(html).isEqualTo("<html><body><p>body</p></body></html>");
 	}
+
+	@Test
+	public void testStreamsHtmlToWriterWhileReadingInput() {
+		final int paragraphs = 20000;
+		final StringWriter html = new StringWriter();
+		final int[] htmlLengthWhenInputEnded = new int[1];
+		InputStream rtf = new InputStream() {
+			private final byte[] paragraph = "paragraph\\par\r\n".getBytes(StandardCharsets.ISO_8859_1);
+			private int position = -1;
+
+			@Override
+			public int read() {
+				int total = paragraphs * paragraph.length;
+				if (position == -1) {
+					position++;
+					return '{';
+				}
+				if (position < total) {
+					return paragraph[position++ % paragraph.length];
+				}
+				if (position++ == total) {
+					htmlLengthWhenInputEnded[0] = html.getBuffer().length();
+					return '}';
+				}
+				return -1;
+			}
+		};
+
+		StandardRtfToHtmlConverter.INSTANCE.toHtml(rtf, html);
+
+		assertThat(html.toString()).startsWith("<html><body><p>paragraph</p><p>paragraph</p>");
+		assertThat(html.toString()).endsWith("<p>paragraph</p></body></html>");
+		assertThat(html.toString()).hasSize("<html><body></body></html>".length() + paragraphs * "<p>paragraph</p>".length());
+		assertThat(htmlLengthWhenInputEnded[0]).isGreaterThan(paragraphs * "<p>paragraph</p>".length() / 2);
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			concatenated.write(part, 0, part.length);
+		}
+		return concatenated.toByteArray();
+	}
+
+	private static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] chunk = new byte[1000];
+		for (int read; (read = stream.read(chunk)) != -1; ) {
+			bytes.write(chunk, 0, read);
+		}
+		return bytes.toByteArray();
+	}
 }
@@ -0,0 +1,79 @@
+package org.bbottema.rtftohtml.benchmark;
+
+import org.bbottema.rtftohtml.OutlookRtfToHtmlConverter;
+import org.bbottema.rtftohtml.StandardRtfToHtmlConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.bbottema.rtftohtml.impl.TestUtils.classpathFileToString;
+
+/**
+ * Measures the cost of opening and closing groups, which save and restore the formatting state, on Word output
+ * ({@code complex-test.rtf}) and on a synthetic document that nests formatted groups thousands of levels deep. Run with
+ * the gc profiler to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GroupStateBenchmark {
+
+	private static final int SYNTHETIC_DEPTH = 5000;
+
+	@Param({ "complex-test.rtf", "deep-nesting" })
+	public String input;
+
+	private byte[] rtf;
+
+	@Setup
+	public void loadInput() {
+		String source = input.equals("deep-nesting") ? deepNesting() : classpathFileToString("test-messages/input/" + input);
+		rtf = source.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String standard() {
+		return StandardRtfToHtmlConverter.INSTANCE.toHtml(rtf);
+	}
+
+	@Benchmark
+	public String outlook() {
+		return OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf);
+	}
+
+	private static String deepNesting() {
+		StringBuilder rtf = new StringBuilder("{\\rtf1\\ansi{\\fonttbl{\\f0\\fswiss Arial;}}\\f0 ");
+		for (int depth = 0; depth < SYNTHETIC_DEPTH; depth++) {
+			rtf.append(depth % 2 == 0 ? "{\\b\\fs22 " : "{\\i\\b0 ").append('x');
+		}
+		for (int depth = 0; depth < SYNTHETIC_DEPTH; depth++) {
+			rtf.append("y}");
+		}
+		return rtf.append('}').toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(GroupStateBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build())
+				.run();
+	}
+}
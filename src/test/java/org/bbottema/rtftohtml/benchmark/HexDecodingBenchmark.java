@@ -0,0 +1,103 @@
+package org.bbottema.rtftohtml.benchmark;
+
+import org.bbottema.rtftohtml.OutlookRtfToHtmlConverter;
+import org.bbottema.rtftohtml.RtfReader;
+import org.bbottema.rtftohtml.RtfTokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.bbottema.rtftohtml.impl.TestUtils.classpathFileToString;
+import static org.bbottema.rtftohtml.impl.util.ByteUtil.hexStringToByteArray;
+
+/**
+ * Decodes the {@code \'hh} runs of CJK documents, where most of the content is hex escapes. {@link #hexString} is the
+ * previous approach of collecting the digits into a {@code String} and decoding that; {@link #lookupTable} is the
+ * tokenizer's table-driven decoder. {@link #convert} shows the effect on a whole Outlook conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HexDecodingBenchmark {
+
+	@Param({ "chinese-exotic-test.rtf", "synthetic-cjk" })
+	public String input;
+
+	private String rtf;
+	private byte[] rtfBytes;
+
+	@Setup
+	public void loadInput() {
+		rtf = input.equals("synthetic-cjk") ? syntheticCjk(2000) : classpathFileToString("test-messages/input/" + input);
+		rtfBytes = rtf.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Benchmark
+	public void hexString(Blackhole blackhole) {
+		RtfReader reader = new RtfReader(rtfBytes);
+		RtfTokenType token;
+		while ((token = reader.next()) != RtfTokenType.END_OF_INPUT) {
+			if (token == RtfTokenType.HEX_BYTES) {
+				StringBuilder hex = new StringBuilder();
+				for (int cursor = reader.getStartOffset(); cursor < reader.getEndOffset(); cursor += 4) {
+					hex.append(rtf.charAt(cursor + 2));
+					hex.append(rtf.charAt(cursor + 3));
+				}
+				blackhole.consume(hexStringToByteArray(hex.toString()));
+			}
+		}
+	}
+
+	@Benchmark
+	public void lookupTable(Blackhole blackhole) {
+		RtfReader reader = new RtfReader(rtfBytes);
+		RtfTokenType token;
+		while ((token = reader.next()) != RtfTokenType.END_OF_INPUT) {
+			if (token == RtfTokenType.HEX_BYTES) {
+				blackhole.consume(reader.getBytes());
+			}
+		}
+	}
+
+	@Benchmark
+	public String convert() {
+		return OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtfBytes);
+	}
+
+	/**
+	 * GBK-encoded paragraphs the way Outlook writes them: every CJK character becomes two {@code \'hh} escapes.
+	 */
+	private static String syntheticCjk(int paragraphs) {
+		StringBuilder rtf = new StringBuilder("{\\rtf1\\ansi\\ansicpg936\\fromtext \\deff0{\\fonttbl{\\f0\\fswiss\\fcharset134 Simsun;}}\r\n");
+		for (int i = 0; i < paragraphs; i++) {
+			rtf.append("\\f0\\'d6\\'d0\\'ce\\'c4\\'b2\\'e2\\'ca\\'d4\\'a3\\'ac\\'c7\\'eb\\'ba\\'f6\\'c2\\'d4\\'b4\\'cb\\'d3\\'ca\\'bc\\'fe 42\\par\r\n");
+		}
+		return rtf.append('}').toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(HexDecodingBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build())
+				.run();
+	}
+}
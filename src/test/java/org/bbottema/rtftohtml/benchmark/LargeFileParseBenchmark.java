@@ -0,0 +1,111 @@
+package org.bbottema.rtftohtml.benchmark;
+
+import org.bbottema.rtftohtml.RtfParser;
+import org.bbottema.rtftohtml.model.RtfDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a large RTF file through {@link RtfParser#parse(InputStream)} with parsing it memory-mapped through
+ * {@link RtfParser#parse(Path)}. Run {@link #main(String[])} to include the GC profiler, which shows the difference in
+ * heap allocated per parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LargeFileParseBenchmark {
+
+	@Param({ "16", "128" })
+	public int megabytes;
+
+	private final RtfParser parser = new RtfParser();
+	private Path rtfFile;
+
+	@Setup
+	public void writeLargeRtfFile() throws IOException {
+		rtfFile = Files.createTempFile("large-rtf-benchmark", ".rtf");
+		try (OutputStream out = Files.newOutputStream(rtfFile)) {
+			writeLargeRtf(out, megabytes * 1024L * 1024L);
+		}
+	}
+
+	@TearDown
+	public void deleteLargeRtfFile() throws IOException {
+		Files.deleteIfExists(rtfFile);
+	}
+
+	@Benchmark
+	public RtfDocument parseInputStream() throws IOException {
+		try (InputStream in = Files.newInputStream(rtfFile)) {
+			return parser.parse(in);
+		}
+	}
+
+	@Benchmark
+	public RtfDocument parseMappedFile() {
+		return parser.parse(rtfFile);
+	}
+
+	/**
+	 * Writes a Word-like document: a short header, then alternating text paragraphs and scanned-image {@code \pict}
+	 * groups with hex payloads, which is where archived documents get their size from.
+	 */
+	static void writeLargeRtf(OutputStream out, long targetSize) throws IOException {
+		byte[] header = "{\\rtf1\\ansi\\ansicpg1252\\deff0{\\fonttbl{\\f0\\fswiss Arial;}}\r\n".getBytes(StandardCharsets.ISO_8859_1);
+		byte[] paragraph = "\\pard\\f0\\fs22 Scanned page follows, see the attached image.\\par\r\n".getBytes(StandardCharsets.ISO_8859_1);
+		byte[] pictStart = "{\\pict\\pngblip\\picw800\\pich600\r\n".getBytes(StandardCharsets.ISO_8859_1);
+		byte[] hexLine = new byte[130];
+		for (int i = 0; i < 128; i++) {
+			hexLine[i] = (byte) "0123456789abcdef".charAt(i % 16);
+		}
+		hexLine[128] = '\r';
+		hexLine[129] = '\n';
+
+		long written = header.length;
+		out.write(header);
+		while (written < targetSize) {
+			out.write(paragraph);
+			out.write(pictStart);
+			written += paragraph.length + pictStart.length;
+			for (int line = 0; line < 512; line++) {
+				out.write(hexLine);
+			}
+			written += 512L * hexLine.length;
+			out.write('}');
+			written++;
+		}
+		out.write('}');
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(LargeFileParseBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build())
+				.run();
+	}
+}
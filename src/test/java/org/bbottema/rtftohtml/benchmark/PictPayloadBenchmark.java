@@ -0,0 +1,87 @@
+package org.bbottema.rtftohtml.benchmark;
+
+import org.bbottema.rtftohtml.RtfToHtmlOptions;
+import org.bbottema.rtftohtml.StandardRtfToHtmlConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a document with one large embedded screenshot, stored either as a {@code \binN} payload or as hex digits
+ * wrapped at 128 characters per line the way Word writes them. The image handler accepts every image, so the payload
+ * is accumulated in full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PictPayloadBenchmark {
+
+	@Param({ "bin", "hex" })
+	public String encoding;
+
+	@Param({ "4" })
+	public int megabytes;
+
+	private byte[] rtf;
+	private final StandardRtfToHtmlConverter converter = new StandardRtfToHtmlConverter(RtfToHtmlOptions.builder()
+			.imageHandler(image -> "cid:" + image.asByteBuffer().remaining())
+			.build());
+
+	@Setup
+	public void generateInput() {
+		byte[] payload = new byte[megabytes * 1024 * 1024];
+		new Random(42).nextBytes(payload);
+		ByteArrayOutputStream document = new ByteArrayOutputStream();
+		write(document, "{\\rtf1\\ansi Screenshot:\\par {\\pict\\pngblip\\picw1920\\pich1080 ");
+		if (encoding.equals("bin")) {
+			write(document, "\\bin" + payload.length + " ");
+			document.write(payload, 0, payload.length);
+		} else {
+			for (int i = 0; i < payload.length; i++) {
+				write(document, String.format("%02x", payload[i] & 0xff));
+				if (i % 64 == 63) {
+					write(document, "\r\n");
+				}
+			}
+		}
+		write(document, "}\\par Regards}");
+		rtf = document.toByteArray();
+	}
+
+	@Benchmark
+	public String convert() {
+		return converter.toHtml(rtf);
+	}
+
+	private static void write(ByteArrayOutputStream document, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+		document.write(bytes, 0, bytes.length);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(PictPayloadBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build())
+				.run();
+	}
+}
@@ -0,0 +1,73 @@
+package org.bbottema.rtftohtml.benchmark;
+
+import org.bbottema.rtftohtml.OutlookRtfToHtmlConverter;
+import org.bbottema.rtftohtml.RtfParser;
+import org.bbottema.rtftohtml.RtfToHtmlOptions;
+import org.bbottema.rtftohtml.internal.RtfToHtmlEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.bbottema.rtftohtml.impl.TestUtils.classpathFileToString;
+
+/**
+ * Compares the converters' single pass, where the tokenizer drives the renderer directly ({@link #singlePass}), with
+ * parsing into a tree or a tape first and rendering that ({@link #parsedDocument}, {@link #parsedTape}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SinglePassConversionBenchmark {
+
+	@Param({ "simple-test.rtf", "complex-test.rtf", "chinese-exotic-test.rtf" })
+	public String input;
+
+	private byte[] rtf;
+	private final RtfParser parser = new RtfParser();
+	private final RtfToHtmlEngine engine = new RtfToHtmlEngine(RtfToHtmlOptions.defaults());
+
+	@Setup
+	public void loadInput() {
+		rtf = classpathFileToString("test-messages/input/" + input).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String singlePass() {
+		return OutlookRtfToHtmlConverter.INSTANCE.toHtml(rtf);
+	}
+
+	@Benchmark
+	public String parsedDocument() {
+		return engine.renderOutlook(parser.parse(rtf));
+	}
+
+	@Benchmark
+	public String parsedTape() {
+		return OutlookRtfToHtmlConverter.INSTANCE.toHtml(parser.parseTape(rtf));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(SinglePassConversionBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build())
+				.run();
+	}
+}